@@ -0,0 +1,89 @@
+import java.util.*;
+
+/**
+ * Throughput of {@link BrooklynTechNavigation#getDirectionsBatch} for a bell
+ * change: every student routes from their current room to their next class.
+ * Runs the same batch at 1, 2, 4, ... threads up to the core count and reports
+ * routes per second and speedup over one thread.
+ *
+ * Usage: java BatchRoutingBenchmark [students] [rounds] [--render]
+ */
+public class BatchRoutingBenchmark {
+
+    // Each room's students spread over this many next classes, so identical pairs are common
+    private static final int NEXT_CLASSES_PER_ROOM = 8;
+
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        boolean render = Arrays.asList(args).contains("--render");
+
+        List<BrooklynTechNavigation.RoutePair> pairs = passingPeriod(students, new Random(42));
+        long distinct = pairs.stream().map(p -> p.getFrom() + "\n" + p.getTo()).distinct().count();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            levels.add(threads);
+        }
+        levels.add(cores);
+
+        System.out.println("=== Batch routing throughput ===");
+        System.out.printf("Students: %d, distinct pairs: %d, rounds: %d, cores: %d, render text: %b%n",
+                students, distinct, rounds, cores, render);
+
+        // Warm up the routing code before timing any level
+        for (int i = 0; i < 3; i++) {
+            consume(BrooklynTechNavigation.getDirectionsBatch(pairs, cores), render);
+        }
+
+        double baseline = 0;
+        for (int threads : levels) {
+            long start = System.nanoTime();
+            double sink = 0;
+            for (int round = 0; round < rounds; round++) {
+                sink += consume(BrooklynTechNavigation.getDirectionsBatch(pairs, threads), render);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double routesPerSecond = (double) students * rounds / seconds;
+            if (baseline == 0) {
+                baseline = routesPerSecond;
+            }
+            System.out.printf("%3d thread(s): %10.0f routes/s, %7.1f ms per bell change, %.2fx (checksum %.1f)%n",
+                    threads, routesPerSecond, seconds * 1000 / rounds, routesPerSecond / baseline, sink);
+        }
+    }
+
+    static List<BrooklynTechNavigation.RoutePair> passingPeriod(int students, Random random) {
+        List<String> rooms = new ArrayList<>(BrooklynTechNavigation.currentLayout().getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+
+        Map<String, List<String>> nextClasses = new HashMap<>();
+        for (String room : rooms) {
+            List<String> next = new ArrayList<>();
+            for (int i = 0; i < NEXT_CLASSES_PER_ROOM; i++) {
+                next.add(rooms.get(random.nextInt(rooms.size())));
+            }
+            nextClasses.put(room, next);
+        }
+
+        List<BrooklynTechNavigation.RoutePair> pairs = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            String from = rooms.get(random.nextInt(rooms.size()));
+            List<String> next = nextClasses.get(from);
+            pairs.add(new BrooklynTechNavigation.RoutePair(from, next.get(random.nextInt(next.size()))));
+        }
+        return pairs;
+    }
+
+    private static double consume(List<BrooklynTechNavigation.NavigationResult> results, boolean render) {
+        double total = 0;
+        for (BrooklynTechNavigation.NavigationResult result : results) {
+            total += result.getEstimatedTime();
+            if (render) {
+                total += result.getDirections().length();
+            }
+        }
+        return total;
+    }
+}
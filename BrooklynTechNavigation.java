@@ -1,21 +1,35 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class BrooklynTechNavigation {
     
-    // Constants for building layout
-    private static final int BASEMENT = 0;
-    private static final int MAX_FLOOR = 8;
-    private static final double WALKING_SPEED_FEET_PER_MINUTE = 350; // ~4 mph (faster student pace)
-    private static final double FEET_PER_ROOM = 30; // Estimated distance between adjacent rooms
-    private static final double STAIR_TIME_PER_FLOOR = 0.5; // Minutes to go up/down one floor
+    // Constants for walking times
+    static final double WALKING_SPEED_FEET_PER_MINUTE = 350; // ~4 mph (faster student pace)
+    static final double FEET_PER_ROOM = 30; // Estimated distance between adjacent rooms
+    static final double STAIR_TIME_PER_FLOOR = 0.5; // Minutes to go up/down one floor
+    
+    // Defaults for congestion routing
+    static final double PASSING_PERIOD_MINUTES = 5;
+    static final int STAIR_CAPACITY = 400; // Students per floor of one staircase per passing period
+    static final int HALLWAY_CAPACITY = 300; // Students per staircase approach on one floor
     
     // Room coordinates (x, y) for pathfinding
-    private static class Coordinate {
+    static class Coordinate {
         int x, y;
         Coordinate(int x, int y) { this.x = x; this.y = y; }
         
         double distanceTo(Coordinate other) {
-            return Math.sqrt(Math.pow(this.x - other.x, 2) + Math.pow(this.y - other.y, 2));
+            int dx = this.x - other.x;
+            int dy = this.y - other.y;
+            return Math.sqrt(dx * dx + dy * dy);
         }
         
         @Override
@@ -28,272 +42,704 @@ public class BrooklynTechNavigation {
         
         @Override
         public int hashCode() {
-            return Objects.hash(x, y);
+            return 31 * x + y;
         }
     }
     
-    // Building layout data
-    private static Map<String, Coordinate> roomCoordinates = new HashMap<>();
-    private static Map<Integer, Set<String>> floorRooms = new HashMap<>();
-    private static Map<String, String> specialAreas = new HashMap<>();
+    // Staircase locations (corner and middle staircases)
+    static final Coordinate[] CORNER_STAIRS = {
+        new Coordinate(2, 20),   // NW corner
+        new Coordinate(20, 20),  // NE corner
+        new Coordinate(20, 5),   // SE corner
+        new Coordinate(2, 5)     // SW corner
+    };
     
-    static {
-        initializeBuildingLayout();
-    }
+    static final Coordinate[] MIDDLE_STAIRS = {
+        new Coordinate(2, 12),   // West middle (near W12)
+        new Coordinate(20, 12)   // East middle (near E12)
+    };
     
-    private static void initializeBuildingLayout() {
-        // Initialize room coordinates and floor mappings
-        for (int floor = BASEMENT; floor <= MAX_FLOOR; floor++) {
-            floorRooms.put(floor, new HashSet<>());
-            
-            if (floor == BASEMENT) {
-                // Basement: Only North and West sides
-                addNorthRooms(floor);
-                addWestRooms(floor);
-                addSpecialArea(floor + "Pool", "Pool", 15, 5);
-            } else if (floor == 1) {
-                // Floor 1: Normal except gym in south, auditorium entrance in center
-                addNorthRooms(floor);
-                addEastRooms(floor);
-                addWestRooms(floor);
-                addSpecialArea(floor + "Gym", "Main Gym", 15, 5);
-                addSpecialArea(floor + "Auditorium", "Auditorium", 12, 12);
-            } else if (floor == 2 || floor == 4 || floor == 6) {
-                // Completely normal floors
-                addAllStandardRooms(floor);
-            } else if (floor == 3) {
-                // Floor 3: Normal except south side is locker room
-                addNorthRooms(floor);
-                addEastRooms(floor);
-                addWestRooms(floor);
-                addCenterRooms(floor);
-                addSpecialArea(floor + "LockerRoom", "Locker Room", 15, 5);
-            } else if (floor == 5) {
-                // Floor 5: Normal except center is library (accessible from west)
-                addNorthRooms(floor);
-                addSouthRooms(floor);
-                addEastRooms(floor);
-                addWestRooms(floor);
-                addSpecialArea(floor + "Library", "Library", 12, 12);
-            } else if (floor == 7) {
-                // Floor 7: Entirely cafeteria (accessible from corners)
-                addSpecialArea(floor + "Cafeteria", "Cafeteria", 15, 15);
-            } else if (floor == 8) {
-                // Floor 8: Normal except gym in center
-                addNorthRooms(floor);
-                addSouthRooms(floor);
-                addEastRooms(floor);
-                addWestRooms(floor);
-                addSpecialArea(floor + "Gym", "Upper Gym", 12, 12);
-            }
-        }
+    // Corner staircases first, then middle ones, in the order findBestStaircase prefers them
+    static final Coordinate[] ALL_STAIRS = {
+        CORNER_STAIRS[0], CORNER_STAIRS[1], CORNER_STAIRS[2], CORNER_STAIRS[3],
+        MIDDLE_STAIRS[0], MIDDLE_STAIRS[1]
+    };
+    
+    // Names used to close and reopen staircases, in ALL_STAIRS order
+    static final String[] STAIR_NAMES = {"NW", "NE", "SE", "SW", "W12", "E12"};
+    
+    // Middle staircases have no entrance on floor 7 (cafeteria)
+    static boolean middleStairsServe(int floor) {
+        return floor != 7;
     }
     
-    private static void addNorthRooms(int floor) {
-        for (int room = 1; room <= 9; room++) {
-            String roomName = floor + "N" + room;
-            roomCoordinates.put(roomName, new Coordinate(room * 2, 20));
-            floorRooms.get(floor).add(roomName);
-        }
+    // Counters and latency histograms for every query since startup or the last reset
+    private static final NavigationMetrics metrics = new NavigationMetrics();
+    
+    public static NavigationMetrics getMetrics() {
+        return metrics;
     }
     
-    private static void addSouthRooms(int floor) {
-        for (int room = 1; room <= 9; room++) {
-            String roomName = floor + "S" + room;
-            // S1 is in SE corner, S9 in SW corner
-            roomCoordinates.put(roomName, new Coordinate(20 - (room - 1) * 2, 5));
-            floorRooms.get(floor).add(roomName);
-        }
+    // Current layout snapshot; each query reads it once and uses that snapshot throughout
+    private static final AtomicReference<BuildingLayout> layout = new AtomicReference<>(BuildingLayout.brooklynTech());
+    
+    public static BuildingLayout currentLayout() {
+        return layout.get();
     }
     
-    private static void addEastRooms(int floor) {
-        for (int room = 1; room <= 24; room++) {
-            String roomName = floor + "E" + room;
-            // E24 starts in NE corner, E1 in SE corner
-            roomCoordinates.put(roomName, new Coordinate(20, 20 - room + 1));
-            floorRooms.get(floor).add(roomName);
-        }
+    /**
+     * Atomically replaces the layout. Queries already running finish on the old
+     * snapshot; queries started afterwards see the new one. The new snapshot's
+     * route table is built before the swap, so a layout too large for
+     * precomputed routes or transit-node routing is refused with an
+     * IllegalStateException.
+     */
+    public static void publishLayout(BuildingLayout next) {
+        prepareLayout(next);
+        layout.set(next);
     }
     
-    private static void addWestRooms(int floor) {
-        for (int room = 1; room <= 24; room++) {
-            String roomName = floor + "W" + room;
-            // W1 in NW corner, W24 in SW corner
-            roomCoordinates.put(roomName, new Coordinate(2, 20 - room + 1));
-            floorRooms.get(floor).add(roomName);
+    // Applies a change to whatever snapshot is current, retrying if another update wins the race
+    public static BuildingLayout updateLayout(UnaryOperator<BuildingLayout> change) {
+        while (true) {
+            BuildingLayout current = layout.get();
+            BuildingLayout next = change.apply(current);
+            prepareLayout(next);
+            if (layout.compareAndSet(current, next)) {
+                return next;
+            }
         }
     }
     
-    private static void addCenterRooms(int floor) {
-        for (int room = 1; room <= 8; room++) {
-            String roomName = floor + "C" + room;
-            roomCoordinates.put(roomName, new Coordinate(8 + room, 12));
-            floorRooms.get(floor).add(roomName);
-        }
+    public static BuildingLayout closeStaircase(String name) {
+        return updateLayout(current -> current.withStairClosed(name));
     }
     
-    private static void addAllStandardRooms(int floor) {
-        addNorthRooms(floor);
-        addSouthRooms(floor);
-        addEastRooms(floor);
-        addWestRooms(floor);
-        addCenterRooms(floor);
+    public static BuildingLayout reopenStaircase(String name) {
+        return updateLayout(current -> current.withStairReopened(name));
     }
     
-    private static void addSpecialArea(String key, String displayName, int x, int y) {
-        roomCoordinates.put(key, new Coordinate(x, y));
-        specialAreas.put(displayName.toLowerCase(), key);
-        int floor = Integer.parseInt(key.substring(0, 1));
-        floorRooms.get(floor).add(key);
+    public static BuildingLayout blockWing(int floor, char side) {
+        return updateLayout(current -> current.withWingBlocked(floor, side));
     }
     
-    // Staircase locations (corner and middle staircases)
-    private static final Coordinate[] CORNER_STAIRS = {
-        new Coordinate(2, 20),   // NW corner
-        new Coordinate(20, 20),  // NE corner
-        new Coordinate(20, 5),   // SE corner
-        new Coordinate(2, 5)     // SW corner
-    };
+    public static BuildingLayout reopenWing(int floor, char side) {
+        return updateLayout(current -> current.withWingReopened(floor, side));
+    }
     
-    private static final Coordinate[] MIDDLE_STAIRS = {
-        new Coordinate(2, 12),   // West middle (near W12)
-        new Coordinate(20, 12)   // East middle (near E12)
-    };
+    private static void prepareLayout(BuildingLayout next) {
+        if (precomputedRoutes) {
+            next.getRouteTable();
+        }
+        if (transitRouting) {
+            next.getTransitRouter();
+        }
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        CongestionModel model = congestion;
+        if (model != null) {
+            model.ensureFloors(next.getFloorCount());
+        }
+    }
     
     public static class NavigationResult {
-        private String directions;
-        private double estimatedTime;
+        // What a result reports: a route, or why there is none
+        public enum Status {
+            OK, SAME_ROOM, NOT_FOUND, CLOSED, NO_STAIRS;
+            
+            public boolean isError() { return this != OK && this != SAME_ROOM; }
+        }
+        
+        private final Status status;
+        private final BuildingLayout layout;
+        private final String from;
+        private final String to;
+        private final List<RouteStep> steps;
+        private final double estimatedTime;
         
-        public NavigationResult(String directions, double estimatedTime) {
+        // Rendered on first read, so callers that only want the time never build text
+        private volatile String directions;
+        
+        public NavigationResult(Status status, String directions, double estimatedTime) {
+            this.status = status;
+            this.layout = null;
+            this.from = null;
+            this.to = null;
+            this.steps = Collections.emptyList();
             this.directions = directions;
             this.estimatedTime = estimatedTime;
         }
         
-        public String getDirections() { return directions; }
+        NavigationResult(BuildingLayout layout, String from, String to, List<RouteStep> steps, double estimatedTime) {
+            this.status = Status.OK;
+            this.layout = layout;
+            this.from = from;
+            this.to = to;
+            this.steps = steps;
+            this.estimatedTime = estimatedTime;
+        }
+        
+        public String getDirections() {
+            String text = directions;
+            if (text == null) {
+                long start = NavigationMetrics.startSampled();
+                text = renderDirections(layout, from, to, steps, estimatedTime);
+                metrics.recordSampled(NavigationMetrics.Phase.RENDER, start);
+                directions = text;
+            }
+            return text;
+        }
+        
+        public Status getStatus() { return status; }
         public double getEstimatedTime() { return estimatedTime; }
+        public List<RouteStep> getSteps() { return steps; }
+        
+        // Name of the staircase the route climbs, null when it stays on one floor or is only a message
+        public String getStairName() {
+            int stair = stairOf(this);
+            return stair >= 0 ? STAIR_NAMES[stair] : null;
+        }
+        
+        // Normalized room IDs, null for results that are only a message
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+    }
+    
+    // One instruction of a route, kept structured until the directions are rendered
+    public static class RouteStep {
+        public enum Kind { WALK_DIRECTLY, WALK_TO_STAIRS, TAKE_STAIRS, WALK_TO_ROOM, SPECIAL_ACCESS }
+        
+        private final Kind kind;
+        private final Coordinate start;
+        private final Coordinate end;
+        private final int fromFloor;
+        private final int toFloor;
+        private final String target;
+        
+        private RouteStep(Kind kind, Coordinate start, Coordinate end, int fromFloor, int toFloor, String target) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.fromFloor = fromFloor;
+            this.toFloor = toFloor;
+            this.target = target;
+        }
+        
+        static RouteStep walk(Kind kind, Coordinate start, Coordinate end, String room) {
+            return new RouteStep(kind, start, end, -1, -1, room);
+        }
+        
+        static RouteStep stairs(int fromFloor, int toFloor) {
+            return new RouteStep(Kind.TAKE_STAIRS, null, null, fromFloor, toFloor, null);
+        }
+        
+        static RouteStep specialAccess(String instructions) {
+            return new RouteStep(Kind.SPECIAL_ACCESS, null, null, -1, -1, instructions);
+        }
+        
+        public Kind getKind() { return kind; }
+        public int getFromFloor() { return fromFloor; }
+        public int getToFloor() { return toFloor; }
+        
+        // Destination room for walking steps, instructions for special access steps
+        public String getTarget() { return target; }
+        
+        void appendTo(BuildingLayout layout, StringBuilder directions) {
+            switch (kind) {
+                case WALK_DIRECTLY:
+                    directions.append("Walk directly to ").append(getRoomDisplayName(layout, target));
+                    appendDirectionalGuidance(directions, start, end);
+                    break;
+                case WALK_TO_STAIRS:
+                    directions.append("Walk to the staircase");
+                    appendDirectionalGuidance(directions, start, end);
+                    break;
+                case TAKE_STAIRS:
+                    int floorDifference = Math.abs(toFloor - fromFloor);
+                    directions.append("Take the stairs ");
+                    directions.append(toFloor > fromFloor ? "UP" : "DOWN");
+                    directions.append(" ").append(floorDifference).append(" floor");
+                    if (floorDifference > 1) directions.append("s");
+                    directions.append(" to floor ").append(toFloor);
+                    break;
+                case WALK_TO_ROOM:
+                    directions.append("Walk to ").append(getRoomDisplayName(layout, target));
+                    appendDirectionalGuidance(directions, start, end);
+                    break;
+                case SPECIAL_ACCESS:
+                    directions.append(target);
+                    break;
+            }
+        }
     }
     
     public static NavigationResult getDirections(String fromRoom, String toRoom) {
+        // Allocation of a disabled event is optimized away, so this is free without a JFR recording
+        NavigationMetrics.SlowRouteEvent event = new NavigationMetrics.SlowRouteEvent();
+        event.begin();
+        long start = NavigationMetrics.startSampled();
+        
+        NavigationResult result = findDirections(fromRoom, toRoom);
+        
+        metrics.recordSampled(NavigationMetrics.Phase.TOTAL, start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.from = fromRoom;
+            event.to = toRoom;
+            event.outcome = result.getFrom() != null ? "route" : result.getDirections();
+            event.minutes = result.getEstimatedTime();
+            event.commit();
+        }
+        return result;
+    }
+    
+    private static NavigationResult findDirections(String fromRoom, String toRoom) {
+        BuildingLayout current = layout.get();
+        metrics.countQuery();
+        
         // Normalize input and handle special areas
-        String normalizedFrom = normalizeRoomInput(fromRoom);
-        String normalizedTo = normalizeRoomInput(toRoom);
+        String normalizedFrom = normalizeRoomInput(current, fromRoom);
+        String normalizedTo = normalizeRoomInput(current, toRoom);
         
         if (normalizedFrom == null) {
-            return new NavigationResult("Error: Starting room '" + fromRoom + "' not found.", 0);
+            return new NavigationResult(NavigationResult.Status.NOT_FOUND,
+                    notFoundMessage(current, "Starting room", fromRoom), 0);
         }
         if (normalizedTo == null) {
-            return new NavigationResult("Error: Destination room '" + toRoom + "' not found.", 0);
+            return new NavigationResult(NavigationResult.Status.NOT_FOUND,
+                    notFoundMessage(current, "Destination room", toRoom), 0);
+        }
+        
+        return routeResolved(current, normalizedFrom, normalizedTo);
+    }
+    
+    // Route between two normalized room IDs
+    private static NavigationResult routeResolved(BuildingLayout current, String normalizedFrom, String normalizedTo) {
+        if (current.isRoomClosed(normalizedFrom)) {
+            metrics.countClosedRoom();
+            return new NavigationResult(NavigationResult.Status.CLOSED,
+                    "Error: " + getRoomDisplayName(current, normalizedFrom) + " is currently closed.", 0);
+        }
+        if (current.isRoomClosed(normalizedTo)) {
+            metrics.countClosedRoom();
+            return new NavigationResult(NavigationResult.Status.CLOSED,
+                    "Error: " + getRoomDisplayName(current, normalizedTo) + " is currently closed.", 0);
         }
         
         if (normalizedFrom.equals(normalizedTo)) {
-            return new NavigationResult("You are already at your destination!", 0);
+            metrics.countSameRoom();
+            return new NavigationResult(NavigationResult.Status.SAME_ROOM,
+                    "You are already at your destination!", 0);
+        }
+        
+        // Congested routes depend on who has already been routed, so they skip the cache and table
+        CongestionModel model = congestion;
+        if (model != null) {
+            return calculateCongestedRoute(current, normalizedFrom, normalizedTo, model);
+        }
+        
+        RouteCache cache = routeCache;
+        boolean precomputed = precomputedRoutes;
+        if (cache == null && !precomputed) {
+            return calculateRoute(current, normalizedFrom, normalizedTo);
+        }
+        
+        // The cache and table are both keyed on kernel IDs, which every room in the layout has
+        RoutingKernel kernel = current.getRoutingKernel();
+        int fromId = kernel.idOf(normalizedFrom);
+        int toId = kernel.idOf(normalizedTo);
+        int key = RouteCache.key(kernel, fromId, toId);
+        if (cache != null) {
+            NavigationResult cached = cache.get(current.getVersion(), key);
+            if (cached != null) {
+                metrics.countStair(stairOf(cached));
+                return cached;
+            }
+        }
+        
+        NavigationResult result = null;
+        if (precomputed) {
+            result = current.getRouteTable().lookup(fromId, toId);
+            if (result != null) {
+                metrics.countStair(stairOf(result));
+            }
+        }
+        if (result == null) {
+            result = calculateRoute(current, normalizedFrom, normalizedTo);
         }
         
-        return calculateRoute(normalizedFrom, normalizedTo);
+        if (cache != null) {
+            cache.put(current.getVersion(), key, result);
+        }
+        return result;
     }
     
-    private static String normalizeRoomInput(String input) {
-        input = input.trim().toLowerCase();
+    // One (from, to) query for the batch API, as typed by the user
+    public static class RoutePair {
+        private final String from;
+        private final String to;
         
-        // Check if it's a special area
-        if (specialAreas.containsKey(input)) {
-            return specialAreas.get(input);
+        public RoutePair(String from, String to) {
+            this.from = from;
+            this.to = to;
         }
         
-        // Check if it's already a properly formatted room
-        for (String room : roomCoordinates.keySet()) {
-            if (room.toLowerCase().equals(input.toUpperCase())) {
-                return room.toUpperCase();
+        public String getFrom() { return from; }
+        public String getTo() { return to; }
+    }
+    
+    // Every parallel batch shares one pool, created at first use with enough workers for that batch
+    private static volatile ForkJoinPool batchPool;
+    
+    private static ForkJoinPool batchPool(int parallelism) {
+        ForkJoinPool pool = batchPool;
+        if (pool == null) {
+            synchronized (BrooklynTechNavigation.class) {
+                pool = batchPool;
+                if (pool == null) {
+                    // Workers are daemon threads, so the pool never keeps the JVM alive
+                    pool = new ForkJoinPool(Math.max(parallelism, Runtime.getRuntime().availableProcessors()));
+                    batchPool = pool;
+                }
             }
         }
-        
-        // Try to parse as a room number (e.g., "4N5" or "4n5")
-        input = input.toUpperCase();
-        if (roomCoordinates.containsKey(input)) {
-            return input;
+        return pool;
+    }
+    
+    public static List<NavigationResult> getDirectionsBatch(Stream<RoutePair> pairs, int parallelism) {
+        return getDirectionsBatch(pairs.collect(Collectors.toList()), parallelism);
+    }
+    
+    /**
+     * Routes every pair and returns the results in input order. With a
+     * parallelism of 1 the caller's thread routes the whole batch; otherwise
+     * the batch is cut into {@code parallelism} slices that resolve and route
+     * their pairs on the shared batch pool, so no more than that many threads
+     * work on it (and no more than the pool has). Pairs that resolve to the same
+     * rooms share one result.
+     */
+    public static List<NavigationResult> getDirectionsBatch(Collection<RoutePair> pairs, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
         }
         
-        return null;
+        // The whole batch is routed on one layout snapshot
+        BuildingLayout current = layout.get();
+        List<RoutePair> input = pairs instanceof List ? (List<RoutePair>) pairs : new ArrayList<>(pairs);
+        NavigationResult[] results = new NavigationResult[input.size()];
+        
+        // Under congestion routing every student adds load, so identical pairs are not shared
+        Map<String, NavigationResult> shared = congestion == null ? new ConcurrentHashMap<>() : null;
+        
+        int slices = Math.min(parallelism, (results.length + BATCH_MIN_SLICE - 1) / BATCH_MIN_SLICE);
+        if (slices <= 1) {
+            routeSlice(current, input, results, 0, results.length, shared);
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(slices);
+            for (int s = 0; s < slices; s++) {
+                int start = (int) ((long) results.length * s / slices);
+                int end = (int) ((long) results.length * (s + 1) / slices);
+                tasks.add(ForkJoinTask.adapt(() -> routeSlice(current, input, results, start, end, shared)));
+            }
+            batchPool(parallelism).invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+        return Arrays.asList(results);
+    }
+    
+    // Smallest slice worth handing to another thread
+    private static final int BATCH_MIN_SLICE = 64;
+    
+    // Resolves and routes pairs [start, end); duplicates found through shared reuse the first result
+    private static void routeSlice(BuildingLayout current, List<RoutePair> pairs, NavigationResult[] results,
+                                   int start, int end, Map<String, NavigationResult> shared) {
+        for (int i = start; i < end; i++) {
+            RoutePair pair = pairs.get(i);
+            metrics.countQuery();
+            String from = normalizeRoomInput(current, pair.from);
+            String to = normalizeRoomInput(current, pair.to);
+            
+            // Unresolved input is keyed on the raw text
+            String key = from != null && to != null ? from + '\n' + to : '\u0000' + pair.from + '\n' + pair.to;
+            NavigationResult result = shared != null ? shared.get(key) : null;
+            if (result != null) {
+                metrics.countStair(stairOf(result));
+            } else {
+                if (from == null) {
+                    result = new NavigationResult(NavigationResult.Status.NOT_FOUND,
+                            notFoundMessage(current, "Starting room", pair.from), 0);
+                } else if (to == null) {
+                    result = new NavigationResult(NavigationResult.Status.NOT_FOUND,
+                            notFoundMessage(current, "Destination room", pair.to), 0);
+                } else {
+                    result = routeResolved(current, from, to);
+                }
+                // Two slices may route the same pair at once; both keep the first result stored
+                if (shared != null) {
+                    NavigationResult first = shared.putIfAbsent(key, result);
+                    if (first != null) result = first;
+                }
+            }
+            results[i] = result;
+        }
+    }
+    
+    // Optional bounded cache of recent routes, null when disabled
+    private static volatile RouteCache routeCache;
+    
+    public static RouteCache enableRouteCache(int maxEntries, RouteCache.EvictionPolicy policy) {
+        RouteCache cache = new RouteCache(maxEntries, policy);
+        routeCache = cache;
+        return cache;
+    }
+    
+    public static void disableRouteCache() {
+        routeCache = null;
+    }
+    
+    public static RouteCache getRouteCache() {
+        return routeCache;
+    }
+    
+    // Optional all-pairs route tables, one held by each layout snapshot
+    private static volatile boolean precomputedRoutes;
+    
+    public static RouteTable enablePrecomputedRoutes() {
+        RouteTable table = layout.get().getRouteTable();
+        precomputedRoutes = true;
+        return table;
+    }
+    
+    public static void disablePrecomputedRoutes() {
+        precomputedRoutes = false;
+    }
+    
+    // Table of the current snapshot, null when routes are computed per query
+    public static RouteTable getRouteTable() {
+        return precomputedRoutes ? layout.get().getRouteTable() : null;
+    }
+    
+    // Optional transit-node staircase choice; same routes, fewer checks per query on tall buildings
+    private static volatile boolean transitRouting;
+    
+    /**
+     * Chooses staircases with the current snapshot's TransitNodeRouter instead
+     * of the kernel scan. Layouts above TransitNodeRouter.MAX_FLOORS floors are
+     * refused with an IllegalStateException, here and on every later swap.
+     */
+    public static void enableTransitNodeRouting() {
+        layout.get().getTransitRouter();
+        transitRouting = true;
+    }
+    
+    public static void disableTransitNodeRouting() {
+        transitRouting = false;
+    }
+    
+    // Optional load-dependent routing for passing periods, null when routes are purely geometric
+    private static volatile CongestionModel congestion;
+    
+    public static CongestionModel enableCongestionRouting(CongestionModel model) {
+        congestion = model;
+        return model;
+    }
+    
+    // Five minute passing periods with default stair and hallway capacities
+    public static CongestionModel enableCongestionRouting() {
+        return enableCongestionRouting(new CongestionModel(PASSING_PERIOD_MINUTES, STAIR_CAPACITY,
+                HALLWAY_CAPACITY, layout.get().getFloorCount()));
+    }
+    
+    public static void disableCongestionRouting() {
+        congestion = null;
+    }
+    
+    public static CongestionModel getCongestionModel() {
+        return congestion;
+    }
+    
+    private static String normalizeRoomInput(BuildingLayout current, String input) {
+        // Room IDs and special area names, case-folded in the prebuilt index
+        long start = NavigationMetrics.startSampled();
+        String room = current.getRoomIndex().resolve(input);
+        metrics.recordSampled(NavigationMetrics.Phase.NORMALIZE, start);
+        if (room == null) {
+            metrics.countLookupMiss();
+        }
+        return room;
     }
     
-    private static NavigationResult calculateRoute(String from, String to) {
-        Coordinate fromCoord = roomCoordinates.get(from);
-        Coordinate toCoord = roomCoordinates.get(to);
+    // Normalized room ID for typed input, or null if it names no room
+    public static String resolveRoom(String input) {
+        return layout.get().getRoomIndex().resolve(input);
+    }
+    
+    public static String roomDisplayName(String room) {
+        return getRoomDisplayName(layout.get(), room);
+    }
+    
+    // Ranked "did you mean" suggestions for input that did not resolve to a room
+    public static List<String> suggestRooms(String input) {
+        return layout.get().getRoomIndex().suggest(input);
+    }
+    
+    private static String notFoundMessage(BuildingLayout current, String prefix, String input) {
+        String message = "Error: " + prefix + " '" + input + "' not found.";
+        List<String> suggestions = current.getRoomIndex().suggest(input);
+        if (!suggestions.isEmpty()) {
+            message += " Did you mean: " + String.join(", ", suggestions) + "?";
+        }
+        return message;
+    }
+    
+    static NavigationResult calculateRoute(BuildingLayout layout, String from, String to) {
+        long start = NavigationMetrics.startSampled();
+        
+        // The kernel picks the staircase and times the route on int IDs; only the result allocates
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int fromId = kernel.idOf(from);
+        int toId = kernel.idOf(to);
         
+        // Same floor routes walk directly, multi-floor routes go through the best staircase
+        long stairStart = NavigationMetrics.startSampled();
+        int stair = transitRouting
+                ? layout.getTransitRouter().bestStair(fromId, toId) : kernel.bestStair(fromId, toId);
+        metrics.recordSampled(NavigationMetrics.Phase.STAIRS, stairStart);
+        if (stair == RoutingKernel.NO_STAIRS) {
+            metrics.countNoStairs();
+            return new NavigationResult(NavigationResult.Status.NO_STAIRS,
+                    "Error: No open staircase between floor " + kernel.floor(fromId)
+                    + " and floor " + kernel.floor(toId) + ".", 0);
+        }
+        metrics.countStair(stair);
+        
+        Coordinate bestStair = stair == RoutingKernel.SAME_FLOOR ? null : ALL_STAIRS[stair];
+        NavigationResult result = buildResult(layout, from, to, bestStair, kernel.travelTime(fromId, toId, stair));
+        metrics.recordSampled(NavigationMetrics.Phase.ROUTE, start);
+        return result;
+    }
+    
+    // Picks the staircase that is fastest at the current load and adds this student to it
+    static NavigationResult calculateCongestedRoute(BuildingLayout layout, String from, String to, CongestionModel model) {
         int fromFloor = getFloorFromRoom(from);
         int toFloor = getFloorFromRoom(to);
+        if (fromFloor == toFloor) {
+            return calculateRoute(layout, from, to);
+        }
         
-        StringBuilder directions = new StringBuilder();
-        double totalTime = 0;
+        // The model may have been enabled against a shorter layout than this one
+        model.ensureFloors(Math.max(fromFloor, toFloor) + 1);
         
-        directions.append("Navigation from ").append(getRoomDisplayName(from))
-                 .append(" to ").append(getRoomDisplayName(to)).append(":\n\n");
+        long start = NavigationMetrics.startSampled();
+        int stair = model.chooseStair(layout, from, to);
+        metrics.recordSampled(NavigationMetrics.Phase.STAIRS, start);
+        if (stair < 0) {
+            metrics.countNoStairs();
+            return new NavigationResult(NavigationResult.Status.NO_STAIRS,
+                    "Error: No open staircase between floor " + fromFloor
+                    + " and floor " + toFloor + ".", 0);
+        }
+        double totalTime = model.travelTime(layout, from, to, stair);
+        model.record(fromFloor, toFloor, stair);
+        metrics.countStair(stair);
+        NavigationResult result = buildResult(layout, from, to, ALL_STAIRS[stair], totalTime);
+        metrics.recordSampled(NavigationMetrics.Phase.ROUTE, start);
+        return result;
+    }
+    
+    // Staircase a built route climbs, SAME_FLOOR for a direct walk, NO_STAIRS for a message
+    private static int stairOf(NavigationResult result) {
+        for (RouteStep step : result.getSteps()) {
+            if (step.kind == RouteStep.Kind.WALK_DIRECTLY) {
+                return RoutingKernel.SAME_FLOOR;
+            }
+            if (step.kind == RouteStep.Kind.WALK_TO_STAIRS) {
+                for (int stair = 0; stair < ALL_STAIRS.length; stair++) {
+                    if (ALL_STAIRS[stair] == step.end) return stair;
+                }
+            }
+        }
+        return RoutingKernel.NO_STAIRS;
+    }
+    
+    // Walking time in minutes for a route, through the given staircase (null for same floor)
+    static double routeTime(BuildingLayout layout, String from, String to, Coordinate stair) {
+        Coordinate fromCoord = layout.coordinateOf(from);
+        Coordinate toCoord = layout.coordinateOf(to);
         
-        if (fromFloor == toFloor) {
+        if (stair == null) {
+            return RoutingKernel.walkMinutes(fromCoord.distanceTo(toCoord));
+        }
+        int floorDifference = Math.abs(getFloorFromRoom(to) - getFloorFromRoom(from));
+        return RoutingKernel.travelMinutes(fromCoord.distanceTo(stair), floorDifference, stair.distanceTo(toCoord));
+    }
+    
+    // Render the directions for an already chosen route
+    static NavigationResult buildResult(BuildingLayout layout, String from, String to, Coordinate stair, double totalTime) {
+        Coordinate fromCoord = layout.coordinateOf(from);
+        Coordinate toCoord = layout.coordinateOf(to);
+        
+        int fromFloor = getFloorFromRoom(from);
+        int toFloor = getFloorFromRoom(to);
+        
+        List<RouteStep> steps = new ArrayList<>(4);
+        
+        if (stair == null) {
             // Same floor navigation
-            double distance = fromCoord.distanceTo(toCoord) * FEET_PER_ROOM;
-            totalTime = distance / WALKING_SPEED_FEET_PER_MINUTE;
-            
-            directions.append("1. Walk directly to ").append(getRoomDisplayName(to));
-            directions.append(getDirectionalGuidance(fromCoord, toCoord));
+            steps.add(RouteStep.walk(RouteStep.Kind.WALK_DIRECTLY, fromCoord, toCoord, to));
         } else {
-            // Multi-floor navigation
-            Coordinate bestStair = findBestStaircase(fromCoord, toCoord, fromFloor, toFloor);
-            
             // Walk to staircase
-            double distanceToStair = fromCoord.distanceTo(bestStair) * FEET_PER_ROOM;
-            totalTime += distanceToStair / WALKING_SPEED_FEET_PER_MINUTE;
-            
-            directions.append("1. Walk to the staircase");
-            directions.append(getDirectionalGuidance(fromCoord, bestStair));
-            directions.append("\n");
+            steps.add(RouteStep.walk(RouteStep.Kind.WALK_TO_STAIRS, fromCoord, stair, null));
             
             // Use staircase
-            int floorDifference = Math.abs(toFloor - fromFloor);
-            totalTime += floorDifference * STAIR_TIME_PER_FLOOR;
-            
-            directions.append("2. Take the stairs ");
-            directions.append(toFloor > fromFloor ? "UP" : "DOWN");
-            directions.append(" ").append(floorDifference).append(" floor");
-            if (floorDifference > 1) directions.append("s");
-            directions.append(" to floor ").append(toFloor).append("\n");
+            steps.add(RouteStep.stairs(fromFloor, toFloor));
             
             // Walk to destination
-            double distanceFromStair = bestStair.distanceTo(toCoord) * FEET_PER_ROOM;
-            totalTime += distanceFromStair / WALKING_SPEED_FEET_PER_MINUTE;
-            
-            directions.append("3. Walk to ").append(getRoomDisplayName(to));
-            directions.append(getDirectionalGuidance(bestStair, toCoord));
+            steps.add(RouteStep.walk(RouteStep.Kind.WALK_TO_ROOM, stair, toCoord, to));
             
             // Add special access instructions
             String specialInstructions = getSpecialAccessInstructions(to);
             if (!specialInstructions.isEmpty()) {
-                directions.append("\n4. ").append(specialInstructions);
+                steps.add(RouteStep.specialAccess(specialInstructions));
             }
         }
         
-        directions.append("\n\nEstimated walking time: ");
-        directions.append(String.format("%.1f", totalTime)).append(" minutes");
-        
-        return new NavigationResult(directions.toString(), totalTime);
+        return new NavigationResult(layout, from, to, Collections.unmodifiableList(steps), totalTime);
     }
     
-    private static Coordinate findBestStaircase(Coordinate from, Coordinate to, int fromFloor, int toFloor) {
-        List<Coordinate> availableStairs = new ArrayList<>();
+    private static String renderDirections(BuildingLayout layout, String from, String to,
+                                           List<RouteStep> steps, double totalTime) {
+        StringBuilder directions = new StringBuilder();
         
-        // Corner staircases are always available
-        availableStairs.addAll(Arrays.asList(CORNER_STAIRS));
+        directions.append("Navigation from ").append(getRoomDisplayName(layout, from))
+                 .append(" to ").append(getRoomDisplayName(layout, to)).append(":\n\n");
         
-        // Middle staircases are available if not going to/from floor 7
-        if (fromFloor != 7 && toFloor != 7) {
-            availableStairs.addAll(Arrays.asList(MIDDLE_STAIRS));
+        for (int i = 0; i < steps.size(); i++) {
+            if (i > 0) directions.append("\n");
+            directions.append(i + 1).append(". ");
+            steps.get(i).appendTo(layout, directions);
         }
         
+        directions.append("\n\nEstimated walking time: ");
+        directions.append(String.format("%.1f", totalTime)).append(" minutes");
+        
+        return directions.toString();
+    }
+    
+    // Open staircase that minimizes walking distance, or null if every usable staircase is closed
+    static Coordinate findBestStaircase(BuildingLayout layout, Coordinate from, Coordinate to, int fromFloor, int toFloor) {
+        // Corner staircases are always available; middle ones are not when going to/from floor 7
+        int available = middleStairsServe(fromFloor) && middleStairsServe(toFloor)
+                ? ALL_STAIRS.length : CORNER_STAIRS.length;
+        
         // Find the staircase that minimizes total walking distance
-        Coordinate bestStair = availableStairs.get(0);
-        double minTotalDistance = from.distanceTo(bestStair) + bestStair.distanceTo(to);
+        Coordinate bestStair = null;
+        double minTotalDistance = Double.POSITIVE_INFINITY;
         
-        for (Coordinate stair : availableStairs) {
+        for (int i = 0; i < available; i++) {
+            if (layout.isStairClosed(i)) continue;
+            Coordinate stair = ALL_STAIRS[i];
             double totalDistance = from.distanceTo(stair) + stair.distanceTo(to);
             if (totalDistance < minTotalDistance) {
                 minTotalDistance = totalDistance;
@@ -304,27 +750,28 @@ public class BrooklynTechNavigation {
         return bestStair;
     }
     
-    private static String getDirectionalGuidance(Coordinate from, Coordinate to) {
-        if (from.equals(to)) return "";
+    // Writes straight into the directions being rendered instead of building a separate string
+    private static void appendDirectionalGuidance(StringBuilder directions, Coordinate from, Coordinate to) {
+        if (from.equals(to)) return;
         
-        StringBuilder guidance = new StringBuilder(" (");
+        directions.append(" (");
         
-        if (to.y > from.y) guidance.append("head NORTH");
-        else if (to.y < from.y) guidance.append("head SOUTH");
+        boolean vertical = to.y != from.y;
+        if (to.y > from.y) directions.append("head NORTH");
+        else if (to.y < from.y) directions.append("head SOUTH");
         
         if (to.x > from.x) {
-            if (guidance.length() > 2) guidance.append(", then ");
-            guidance.append("head EAST");
+            if (vertical) directions.append(", then ");
+            directions.append("head EAST");
         } else if (to.x < from.x) {
-            if (guidance.length() > 2) guidance.append(", then ");
-            guidance.append("head WEST");
+            if (vertical) directions.append(", then ");
+            directions.append("head WEST");
         }
         
-        guidance.append(")");
-        return guidance.toString();
+        directions.append(")");
     }
     
-    private static String getSpecialAccessInstructions(String room) {
+    static String getSpecialAccessInstructions(String room) {
         if (room.contains("Library")) {
             return "Enter the Library from the center of the west hallway.";
         } else if (room.contains("Cafeteria")) {
@@ -333,27 +780,79 @@ public class BrooklynTechNavigation {
         return "";
     }
     
-    private static int getFloorFromRoom(String room) {
-        if (room.matches("\\d.*")) {
-            return Integer.parseInt(room.substring(0, 1));
+    static int getFloorFromRoom(String room) {
+        // Leading digits, checked by hand; a regex here compiled a Pattern on every call.
+        // Generated buildings have floors past 9, so 12N5 is on floor 12, not 1
+        int floor = 0;
+        for (int i = 0; i < room.length() && room.charAt(i) >= '0' && room.charAt(i) <= '9'; i++) {
+            floor = floor * 10 + (room.charAt(i) - '0');
         }
-        return 0; // Default to basement if parsing fails
+        return floor; // Basement too if parsing fails
     }
     
-    private static String getRoomDisplayName(String room) {
-        // Check if it's a special area
-        for (Map.Entry<String, String> entry : specialAreas.entrySet()) {
-            if (entry.getValue().equals(room)) {
-                return entry.getKey().substring(0, 1).toUpperCase() + 
-                       entry.getKey().substring(1) + " (Floor " + getFloorFromRoom(room) + ")";
-            }
+    private static String getRoomDisplayName(BuildingLayout layout, String room) {
+        return layout.getRoomIndex().displayName(room);
+    }
+    
+    private static void printCacheStats() {
+        RouteCache cache = routeCache;
+        if (cache != null) {
+            System.out.println(cache.statsReport());
+        }
+        CongestionModel model = congestion;
+        if (model != null) {
+            System.out.println(model.loadReport());
         }
-        return "Room " + room;
     }
     
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean serve = false;
+        int port = NavigationServer.DEFAULT_PORT;
+        String bulkInput = null;
+        String bulkOutput = "-";
+        boolean printMetrics = false;
+        
+        for (String arg : args) {
+            if (arg.equals("--precomputed")) {
+                System.out.println(enablePrecomputedRoutes().memoryReport());
+            } else if (arg.equals("--transit-node")) {
+                enableTransitNodeRouting();
+            } else if (arg.startsWith("--cache=")) {
+                enableRouteCache(Integer.parseInt(arg.substring("--cache=".length())), RouteCache.EvictionPolicy.LRU);
+            } else if (arg.equals("--congestion")) {
+                enableCongestionRouting();
+            } else if (arg.startsWith("--serve")) {
+                serve = true;
+                if (arg.startsWith("--serve=")) port = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.startsWith("--bulk=")) {
+                bulkInput = arg.substring("--bulk=".length());
+            } else if (arg.startsWith("--out=")) {
+                bulkOutput = arg.substring("--out=".length());
+            } else if (arg.equals("--metrics")) {
+                printMetrics = true;
+            } else if (arg.startsWith("--layout=")) {
+                // Another building or an annex, as a .layout or compiled .layout.bin file
+                publishLayout(BuildingLayout.fromLayoutFile(LayoutFile.open(Path.of(arg.substring("--layout=".length())))));
+            }
+        }
+        
+        // Bulk mode routes a query file without prompting
+        if (bulkInput != null) {
+            int threads = Runtime.getRuntime().availableProcessors();
+            System.err.println(new BulkRouter(threads).run(bulkInput, bulkOutput));
+            if (printMetrics) System.err.println(metrics.report());
+            return;
+        }
+        
+        // Server mode answers HTTP requests instead of reading from the console
+        if (serve) {
+            NavigationServer server = new NavigationServer(port);
+            server.start();
+            System.out.println("Brooklyn Tech Navigation listening on http://localhost:" + server.getPort());
+            return;
+        }
         
+        Scanner scanner = new Scanner(System.in);
         System.out.println("=== Brooklyn Technical High School Navigation System ===");
         System.out.println("Enter room numbers (e.g., 4N5, 2E12) or special areas (e.g., Library, Gym, Cafeteria)");
         System.out.println("Type 'quit' to exit\n");
@@ -363,14 +862,22 @@ public class BrooklynTechNavigation {
             String from = scanner.nextLine().trim();
             
             if (from.equalsIgnoreCase("quit")) {
+                printCacheStats();
                 System.out.println("Thanks for using Brooklyn Tech Navigation!");
                 break;
             }
             
+            // Not a room name, so it can share the prompt
+            if (from.equalsIgnoreCase("metrics")) {
+                System.out.println("\n" + metrics.report() + "\n");
+                continue;
+            }
+            
             System.out.print("Enter your destination: ");
             String to = scanner.nextLine().trim();
             
             if (to.equalsIgnoreCase("quit")) {
+                printCacheStats();
                 System.out.println("Thanks for using Brooklyn Tech Navigation!");
                 break;
             }
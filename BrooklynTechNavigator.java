@@ -0,0 +1,258 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+public class BrooklynTechNavigator {
+    // Graph is frozen into CSR arrays at construction
+    private final CompactGraph graph;
+    private volatile Map<String, Node> nodeView;
+
+    // Graph with the current edge times and without closed edges, replaced after every change
+    private volatile CompactGraph current;
+
+    // Created on the first closure or weight change, or the first DYNAMIC query
+    private DynamicShortestPaths dynamic;
+
+    public static class Node {
+        final String id;
+        final String label;
+        final List<Edge> edges = new ArrayList<>();
+
+        Node(String id, String label) {
+            this.id = id;
+            this.label = label;
+        }
+    }
+
+    public static class Edge {
+        final Node to;
+        final int time;
+
+        Edge(Node to, int time) {
+            this.to = to;
+            this.time = time;
+        }
+    }
+
+    // String-keyed view of the current graph, materialized on first use for existing callers
+    // and again after each closure or weight change; closed edges are left out
+    public Map<String, Node> getNodes() {
+        Map<String, Node> view = nodeView;
+        if (view == null) {
+            synchronized (this) {
+                view = nodeView;
+                if (view == null) {
+                    view = buildNodeView();
+                    nodeView = view;
+                }
+            }
+        }
+        return view;
+    }
+
+    // Called with the lock held, so no change can publish between reading current and caching the view
+    private Map<String, Node> buildNodeView() {
+        CompactGraph live = current;
+        Node[] byIndex = new Node[live.nodeCount()];
+        Map<String, Node> view = new HashMap<>();
+        for (int n = 0; n < byIndex.length; n++) {
+            byIndex[n] = new Node(live.id(n), live.label(n));
+            view.put(byIndex[n].id, byIndex[n]);
+        }
+        for (int n = 0; n < byIndex.length; n++) {
+            for (int e = live.edgeStart(n); e < live.edgeEnd(n); e++) {
+                byIndex[n].edges.add(new Edge(byIndex[live.target(e)], live.weight(e)));
+            }
+        }
+        return Collections.unmodifiableMap(view);
+    }
+
+    // Graph as built from the layout, before any closure or weight change
+    CompactGraph graph() {
+        return graph;
+    }
+
+    CompactGraph currentGraph() {
+        return current;
+    }
+
+    // The maintained trees, for queries and tree building only; changes go through closeEdge and the others
+    synchronized DynamicShortestPaths dynamic() {
+        if (dynamic == null) {
+            dynamic = new DynamicShortestPaths(graph);
+        }
+        return dynamic;
+    }
+
+    private int requireNode(String id) {
+        int index = graph.indexOf(id);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown node '" + id + "'");
+        }
+        return index;
+    }
+
+    // Searches after a change run on a copy of the graph with the new weights; updates are rare
+    private void publishWeights() {
+        current = graph.withWeights(dynamic.weights());
+        nodeView = null;
+    }
+
+    // Close the hallway or stair segment between two nodes; returns the number of nodes re-routed
+    public synchronized int closeEdge(String fromId, String toId) {
+        int touched = dynamic().closeEdge(requireNode(fromId), requireNode(toId));
+        publishWeights();
+        return touched;
+    }
+
+    public synchronized int reopenEdge(String fromId, String toId) {
+        int touched = dynamic().reopenEdge(requireNode(fromId), requireNode(toId));
+        publishWeights();
+        return touched;
+    }
+
+    // Change the travel time in seconds of the segment between two nodes
+    public synchronized int setEdgeTime(String fromId, String toId, int time) {
+        int touched = dynamic().setEdgeWeight(requireNode(fromId), requireNode(toId), time);
+        publishWeights();
+        return touched;
+    }
+
+    // Close every segment touching a node, e.g. a stairwell landing during a fire drill
+    public synchronized int closeNode(String id) {
+        int node = requireNode(id);
+        DynamicShortestPaths paths = dynamic();
+        int touched = 0;
+        for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+            touched += paths.closeEdge(node, graph.target(e));
+        }
+        publishWeights();
+        return touched;
+    }
+
+    public synchronized int reopenNode(String id) {
+        int node = requireNode(id);
+        DynamicShortestPaths paths = dynamic();
+        int touched = 0;
+        for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+            touched += paths.reopenEdge(node, graph.target(e));
+        }
+        publishWeights();
+        return touched;
+    }
+
+    // Layout file of the corridor graph, see layouts/
+    static final String BROOKLYN_TECH_GRAPH = "brooklyn-tech-graph";
+
+    public BrooklynTechNavigator() {
+        this(LayoutFile.load(BROOKLYN_TECH_GRAPH));
+    }
+
+    // Nodes keep the layout's declaration order, which decides between equally fast paths.
+    // Every floor is decoded up front, since stairwell edges join each floor to the next.
+    BrooklynTechNavigator(LayoutFile layout) {
+        CompactGraph.Builder builder = new CompactGraph.Builder();
+        for (LayoutFile.Room room : layout.roomsInOrder()) {
+            builder.addNode(room.id, room.label != null ? room.label : room.id, room.floor,
+                    room.hasPosition() ? room.x : CompactGraph.NO_POSITION, room.y);
+        }
+        for (LayoutFile.Edge edge : layout.edges()) {
+            builder.addEdge(edge.from, edge.to, edge.weight); // bidirectional
+        }
+        graph = builder.build();
+        current = graph;
+    }
+
+    // Shortest path between two node IDs, or null if either is unknown or unreachable
+    public List<Node> shortestPath(String startId, String endId) {
+        return shortestPath(startId, endId, CompactGraph.Algorithm.DIJKSTRA);
+    }
+
+    /**
+     * Shortest path found with the given algorithm, always on the current edge
+     * times. All of them give the same travel time; A* and bidirectional search
+     * settle far fewer nodes than Dijkstra. DYNAMIC answers from shortest path
+     * trees kept up to date through every change, which is fastest for repeated
+     * sources but serializes its queries.
+     */
+    public List<Node> shortestPath(String startId, String endId, CompactGraph.Algorithm algorithm) {
+        int source = graph.indexOf(startId);
+        int target = graph.indexOf(endId);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+
+        int[] path = algorithm == CompactGraph.Algorithm.DYNAMIC
+                ? dynamic().path(source, target) : current.shortestPath(source, target, algorithm);
+        if (path == null) {
+            return null;
+        }
+
+        Map<String, Node> view = getNodes();
+        List<Node> nodes = new ArrayList<>(path.length);
+        for (int node : path) {
+            nodes.add(view.get(graph.id(node)));
+        }
+        return nodes;
+    }
+
+    // Total travel time in seconds along a path, using the fastest edge between each pair of stops
+    public int calculateTime(List<Node> path) {
+        CompactGraph weights = current;
+        int total = 0;
+        for (int i = 1; i < path.size(); i++) {
+            int from = graph.indexOf(path.get(i - 1).id);
+            int to = graph.indexOf(path.get(i).id);
+            int weight = weights.weightBetween(from, to);
+            if (weight < 0) {
+                throw new IllegalArgumentException("No edge between " + path.get(i - 1).id + " and " + path.get(i).id);
+            }
+            total += weight;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // --layout=<file> navigates another building's .layout or .layout.bin file;
+        // --search=a_star, bidirectional or dynamic picks the algorithm, Dijkstra by default
+        String layoutFile = null;
+        CompactGraph.Algorithm algorithm = CompactGraph.Algorithm.DIJKSTRA;
+        for (String arg : args) {
+            if (arg.startsWith("--layout=")) {
+                layoutFile = arg.substring("--layout=".length());
+            } else if (arg.startsWith("--search=")) {
+                algorithm = CompactGraph.Algorithm.valueOf(arg.substring("--search=".length()).toUpperCase());
+            }
+        }
+        BrooklynTechNavigator nav = layoutFile != null
+                ? new BrooklynTechNavigator(LayoutFile.open(Path.of(layoutFile)))
+                : new BrooklynTechNavigator();
+        Scanner sc = new Scanner(System.in);
+
+        System.out.println("Welcome to Brooklyn Tech Navigator!");
+        System.out.println("Enter your current room (e.g., 'W12F1'):");
+
+        String startId = sc.nextLine().trim().toUpperCase();
+
+        System.out.println("Enter your destination room (e.g., 'W14F2'):");
+
+        String endId = sc.nextLine().trim().toUpperCase();
+
+        if (!nav.getNodes().containsKey(startId) || !nav.getNodes().containsKey(endId)) {
+            System.out.println("Invalid room(s). Please check your input.");
+            return;
+        }
+
+        List<Node> path = nav.shortestPath(startId, endId, algorithm);
+        if (path == null) {
+            System.out.println("No path found between those rooms.");
+        } else {
+            System.out.println("\nDIRECTIONS:");
+            for (Node n : path) {
+                System.out.println(" - " + n.label);
+            }
+            int totalTime = nav.calculateTime(path);
+            System.out.println("Estimated travel time: " + totalTime + " seconds.");
+        }
+    }
+}
@@ -0,0 +1,245 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable snapshot of the building: room positions, special areas, and which
+ * staircases and wings are currently open.
+ *
+ * Queries read one snapshot for their whole lifetime, so a closure is applied
+ * by deriving a new snapshot with one of the {@code with...} methods and
+ * publishing it through {@link BrooklynTechNavigation#publishLayout}. The room
+ * maps and lookup index are shared between a snapshot and the ones derived
+ * from it, since closures do not add or remove rooms.
+ */
+public final class BuildingLayout {
+
+    // Layout file of the building, see layouts/
+    static final String BROOKLYN_TECH = "brooklyn-tech";
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version;
+    private final Map<String, BrooklynTechNavigation.Coordinate> roomCoordinates;
+    private final Map<Integer, Set<String>> floorRooms;
+    private final Map<String, String> specialAreas;
+
+    // Rooms tagged with each category in the layout file, e.g. "gym" or "c-wing"
+    private final Map<String, Set<String>> categories;
+    private final RoomIndex roomIndex;
+
+    // Indexed like BrooklynTechNavigation.ALL_STAIRS
+    private final boolean[] closedStairs;
+
+    // Floor number followed by side letter, e.g. "4N"
+    private final Set<String> blockedWings;
+
+    // Built on first use; a racing build just produces an identical kernel
+    private volatile RoutingKernel routingKernel;
+    private volatile TravelTimeMatrix travelTimes;
+    private volatile SpatialIndex spatialIndex;
+    private volatile TransitNodeRouter transitRouter;
+    private volatile RouteTable routeTable;
+
+    private BuildingLayout(Map<String, BrooklynTechNavigation.Coordinate> roomCoordinates,
+                           Map<Integer, Set<String>> floorRooms, Map<String, String> specialAreas,
+                           Map<String, Set<String>> categories,
+                           RoomIndex roomIndex, boolean[] closedStairs, Set<String> blockedWings) {
+        this.version = VERSIONS.incrementAndGet();
+        this.roomCoordinates = roomCoordinates;
+        this.floorRooms = floorRooms;
+        this.specialAreas = specialAreas;
+        this.categories = categories;
+        this.roomIndex = roomIndex;
+        this.closedStairs = closedStairs;
+        this.blockedWings = blockedWings;
+    }
+
+    /** The Brooklyn Tech building from layouts/brooklyn-tech.layout, with every staircase and wing open. */
+    static BuildingLayout brooklynTech() {
+        return fromLayoutFile(LayoutFile.load(BROOKLYN_TECH));
+    }
+
+    /**
+     * A building read from a layout file, with every staircase and wing open.
+     * Every floor is decoded here rather than on first use: input can name a
+     * room on any floor, so the room index needs all of them from the start.
+     */
+    static BuildingLayout fromLayoutFile(LayoutFile file) {
+        Map<String, BrooklynTechNavigation.Coordinate> roomCoordinates = new HashMap<>();
+        Map<Integer, Set<String>> floorRooms = new HashMap<>();
+        Map<String, String> specialAreas = new HashMap<>();
+        Map<String, Set<String>> categories = new TreeMap<>();
+
+        for (int floor = file.getFirstFloor(); floor < file.getFirstFloor() + file.getFloorCount(); floor++) {
+            Set<String> rooms = new HashSet<>();
+            for (LayoutFile.Room room : file.rooms(floor)) {
+                if (!room.hasPosition()) {
+                    throw new IllegalArgumentException("Room " + room.id + " in layout " + file.getName()
+                            + " has no position");
+                }
+                roomCoordinates.put(room.id, new BrooklynTechNavigation.Coordinate(room.x, room.y));
+                rooms.add(room.id);
+                for (String tag : room.tags) {
+                    categories.computeIfAbsent(tag, t -> new HashSet<>()).add(room.id);
+                }
+            }
+            floorRooms.put(floor, Collections.unmodifiableSet(rooms));
+        }
+        for (Map.Entry<String, String> area : file.areas().entrySet()) {
+            specialAreas.put(area.getKey().toLowerCase(), area.getValue());
+        }
+
+        categories.replaceAll((tag, rooms) -> Collections.unmodifiableSet(rooms));
+
+        return new BuildingLayout(Collections.unmodifiableMap(roomCoordinates),
+                Collections.unmodifiableMap(floorRooms), Collections.unmodifiableMap(specialAreas),
+                Collections.unmodifiableMap(categories),
+                RoomIndex.build(roomCoordinates, specialAreas),
+                new boolean[BrooklynTechNavigation.ALL_STAIRS.length], Collections.emptySet());
+    }
+
+    public long getVersion() { return version; }
+
+    Map<String, BrooklynTechNavigation.Coordinate> getRoomCoordinates() { return roomCoordinates; }
+
+    BrooklynTechNavigation.Coordinate coordinateOf(String room) { return roomCoordinates.get(room); }
+
+    public Set<String> getRoomsOnFloor(int floor) {
+        Set<String> rooms = floorRooms.get(floor);
+        return rooms != null ? rooms : Collections.emptySet();
+    }
+
+    // Basement plus every floor above it that has rooms
+    public int getFloorCount() {
+        int count = 0;
+        for (int floor : floorRooms.keySet()) {
+            count = Math.max(count, floor + 1);
+        }
+        return count;
+    }
+
+    Map<String, String> getSpecialAreas() { return specialAreas; }
+
+    // Category names in sorted order
+    public Set<String> getCategories() { return categories.keySet(); }
+
+    public Set<String> getRoomsInCategory(String category) {
+        Set<String> rooms = categories.get(category.toLowerCase(Locale.ROOT));
+        return rooms != null ? rooms : Collections.emptySet();
+    }
+
+    RoomIndex getRoomIndex() { return roomIndex; }
+
+    RoutingKernel getRoutingKernel() {
+        RoutingKernel kernel = routingKernel;
+        if (kernel == null) {
+            kernel = RoutingKernel.build(this);
+            routingKernel = kernel;
+        }
+        return kernel;
+    }
+
+    TravelTimeMatrix getTravelTimes() {
+        TravelTimeMatrix matrix = travelTimes;
+        if (matrix == null) {
+            matrix = new TravelTimeMatrix(getRoutingKernel());
+            travelTimes = matrix;
+        }
+        return matrix;
+    }
+
+    SpatialIndex getSpatialIndex() {
+        SpatialIndex index = spatialIndex;
+        if (index == null) {
+            index = SpatialIndex.build(this);
+            spatialIndex = index;
+        }
+        return index;
+    }
+
+    TransitNodeRouter getTransitRouter() {
+        TransitNodeRouter router = transitRouter;
+        if (router == null) {
+            router = TransitNodeRouter.build(this);
+            transitRouter = router;
+        }
+        return router;
+    }
+
+    RouteTable getRouteTable() {
+        RouteTable table = routeTable;
+        if (table == null) {
+            table = RouteTable.build(this);
+            routeTable = table;
+        }
+        return table;
+    }
+
+    boolean isStairClosed(int stair) { return closedStairs[stair]; }
+
+    public boolean isStairClosed(String name) { return closedStairs[stairIndex(name)]; }
+
+    // Rooms in a blocked wing cannot be routed to or from
+    public boolean isRoomClosed(String room) {
+        if (blockedWings.isEmpty()) return false;
+        String wing = wingOf(room);
+        return wing != null && blockedWings.contains(wing);
+    }
+
+    public Set<String> getBlockedWings() { return blockedWings; }
+
+    public BuildingLayout withStairClosed(String name) {
+        return withStair(name, true);
+    }
+
+    public BuildingLayout withStairReopened(String name) {
+        return withStair(name, false);
+    }
+
+    private BuildingLayout withStair(String name, boolean closed) {
+        boolean[] stairs = closedStairs.clone();
+        stairs[stairIndex(name)] = closed;
+        return new BuildingLayout(roomCoordinates, floorRooms, specialAreas, categories, roomIndex, stairs, blockedWings);
+    }
+
+    public BuildingLayout withWingBlocked(int floor, char side) {
+        Set<String> wings = new HashSet<>(blockedWings);
+        wings.add(wingKey(floor, side));
+        return new BuildingLayout(roomCoordinates, floorRooms, specialAreas, categories, roomIndex, closedStairs,
+                Collections.unmodifiableSet(wings));
+    }
+
+    public BuildingLayout withWingReopened(int floor, char side) {
+        Set<String> wings = new HashSet<>(blockedWings);
+        wings.remove(wingKey(floor, side));
+        return new BuildingLayout(roomCoordinates, floorRooms, specialAreas, categories, roomIndex, closedStairs,
+                Collections.unmodifiableSet(wings));
+    }
+
+    private static int stairIndex(String name) {
+        String[] names = BrooklynTechNavigation.STAIR_NAMES;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equalsIgnoreCase(name)) return i;
+        }
+        throw new IllegalArgumentException("Unknown staircase '" + name + "', expected one of "
+                + String.join(", ", names));
+    }
+
+    private static String wingKey(int floor, char side) {
+        char wing = Character.toUpperCase(side);
+        if ("NSEWC".indexOf(wing) < 0) {
+            throw new IllegalArgumentException("Unknown wing '" + side + "', expected N, S, E, W or C");
+        }
+        return floor + String.valueOf(wing);
+    }
+
+    // Floor digits plus side letter for numbered rooms like "4N5", null for special areas
+    static String wingOf(String room) {
+        int i = 0;
+        while (i < room.length() && Character.isDigit(room.charAt(i))) i++;
+        if (i == 0 || i + 1 >= room.length() || !Character.isDigit(room.charAt(i + 1))) {
+            return null;
+        }
+        return room.substring(0, i + 1);
+    }
+}
@@ -0,0 +1,557 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ * Non-interactive bulk routing for replaying logged queries.
+ *
+ * Reads one "from,to" query per line (CSV, or tab separated) and writes one
+ * CSV result row per query, in input order:
+ *
+ *   line,status,from,to,minutes,message
+ *
+ * status is ok, error (the navigator could not route it, e.g. an unknown
+ * room) or malformed (the line is not two non-empty fields). A bad row never
+ * stops the run. An optional "from,to" header line is skipped.
+ *
+ * Input files are memory-mapped a window at a time; "-" reads standard input
+ * through a buffered channel. The reader cuts lines into batches, a worker
+ * pool routes each batch through getDirections, and a writer thread streams
+ * finished batches out in order. At most a fixed number of batches are in
+ * flight, so memory stays bounded however large the input is.
+ *
+ * Usage: java BulkRouter <input|-> [output|-] [--threads=N] [--precomputed] [--transit-node] [--cache=N]
+ */
+public class BulkRouter {
+
+    // Rows handed to a worker at a time
+    private static final int BATCH_ROWS = 4096;
+
+    // Batches in flight per worker, between the reader and the writer
+    private static final int BATCHES_PER_WORKER = 4;
+
+    // Input mapped per window; a window always ends on a line boundary except the last
+    private static final int MAP_WINDOW_BYTES = 64 << 20;
+
+    // Read buffer for standard input
+    private static final int READ_BUFFER_BYTES = 1 << 20;
+
+    // Longer lines are reported as malformed rather than parsed
+    private static final int MAX_LINE_BYTES = 4096;
+
+    // Rows between progress lines on stderr
+    private static final long PROGRESS_ROWS = 1_000_000;
+
+    static final String HEADER = "line,status,from,to,minutes,message\n";
+
+    // Totals for one run
+    public static final class Summary {
+        private final long rows;
+        private final long routed;
+        private final long errors;
+        private final long malformed;
+        private final long elapsedNanos;
+
+        Summary(long rows, long routed, long errors, long malformed, long elapsedNanos) {
+            this.rows = rows;
+            this.routed = routed;
+            this.errors = errors;
+            this.malformed = malformed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() { return rows; }
+        public long getRouted() { return routed; }
+        public long getErrors() { return errors; }
+        public long getMalformed() { return malformed; }
+
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Rows: %d (%d routed, %d errors, %d malformed) in %.2f s, %.0f rows/s",
+                    rows, routed, errors, malformed, elapsedNanos / 1e9, rowsPerSecond());
+        }
+    }
+
+    // Input rows and, once routed, their encoded output
+    private static final class Batch {
+        final long[] line = new long[BATCH_ROWS];
+        final String[] from = new String[BATCH_ROWS];
+        final String[] to = new String[BATCH_ROWS];
+        int count;
+
+        // Filled in by the worker
+        byte[] output;
+        int routed;
+        int errors;
+        int malformed;
+
+        boolean isFull() { return count == BATCH_ROWS; }
+
+        void add(long line, String from, String to) {
+            this.line[count] = line;
+            this.from[count] = from;
+            this.to[count] = to;
+            count++;
+        }
+    }
+
+    // Marks the end of the input for the writer
+    private static final Future<Batch> END = CompletableFuture.completedFuture(null);
+
+    private final int threads;
+
+    public BulkRouter(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be at least 1: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Routes every query in {@code input} ("-" for standard input) and writes
+     * the results to {@code output} ("-" for standard output).
+     */
+    public Summary run(String input, String output) throws IOException, InterruptedException {
+        try (WritableByteChannel out = openOutput(output)) {
+            if (input.equals("-")) {
+                return run(Channels.newChannel(System.in), -1, out);
+            }
+            try (FileChannel in = FileChannel.open(Path.of(input), StandardOpenOption.READ)) {
+                return run(in, in.size(), out);
+            }
+        }
+    }
+
+    private static WritableByteChannel openOutput(String output) throws IOException {
+        if (output.equals("-")) {
+            // Closing this channel must not close System.out for the rest of the JVM
+            return Channels.newChannel(new FileOutputStream(FileDescriptor.out) {
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+        }
+        return FileChannel.open(Path.of(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // size is the file size for a mapped FileChannel, -1 to read the channel sequentially
+    private Summary run(ReadableByteChannel in, long size, WritableByteChannel out)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<Future<Batch>> pending = new ArrayBlockingQueue<>(threads * BATCHES_PER_WORKER);
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Writer writer = new Writer(pending, out, start);
+        Thread writerThread = new Thread(writer, "bulk-writer");
+        writerThread.start();
+
+        try {
+            LineReader reader = new LineReader(batch -> {
+                // Blocks while the writer is a full queue behind, which bounds memory
+                pending.put(workers.submit(() -> route(batch)));
+            });
+            if (size >= 0) {
+                reader.readMapped((FileChannel) in, size);
+            } else {
+                reader.readChannel(in);
+            }
+            reader.finish();
+        } finally {
+            pending.put(END);
+            writerThread.join();
+            workers.shutdown();
+        }
+
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+        return new Summary(writer.rows, writer.routed, writer.errors, writer.malformed, System.nanoTime() - start);
+    }
+
+    // Routes one batch and encodes its rows, on a worker thread
+    private static Batch route(Batch batch) {
+        StringBuilder csv = new StringBuilder(batch.count * 48);
+        for (int i = 0; i < batch.count; i++) {
+            String from = batch.from[i];
+            String to = batch.to[i];
+            csv.append(batch.line[i]).append(',');
+
+            if (to == null) {
+                // from holds the reason the line could not be read as a query
+                batch.malformed++;
+                csv.append("malformed,,,,");
+                appendCsv(csv, from);
+                csv.append('\n');
+                continue;
+            }
+
+            BrooklynTechNavigation.NavigationResult result;
+            try {
+                result = BrooklynTechNavigation.getDirections(from, to);
+            } catch (RuntimeException e) {
+                batch.errors++;
+                csv.append("error,");
+                appendCsv(csv, from);
+                csv.append(',');
+                appendCsv(csv, to);
+                csv.append(",,");
+                appendCsv(csv, "Internal error: " + e);
+                csv.append('\n');
+                continue;
+            }
+
+            if (result.getFrom() != null) {
+                batch.routed++;
+                csv.append("ok,");
+                appendCsv(csv, result.getFrom());
+                csv.append(',');
+                appendCsv(csv, result.getTo());
+                csv.append(',').append(Math.round(result.getEstimatedTime() * 100) / 100.0).append(",\n");
+                continue;
+            }
+
+            // Message-only results are errors, except for a route that is already at its destination
+            String message = result.getDirections();
+            boolean error = result.getStatus().isError();
+            if (error) {
+                batch.errors++;
+            } else {
+                batch.routed++;
+            }
+            csv.append(error ? "error," : "ok,");
+            appendCsv(csv, from);
+            csv.append(',');
+            appendCsv(csv, to);
+            csv.append(error ? ",," : ",0.0,");
+            appendCsv(csv, message);
+            csv.append('\n');
+        }
+
+        batch.output = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+        // The writer only needs the encoded rows and counts
+        Arrays.fill(batch.from, null);
+        Arrays.fill(batch.to, null);
+        return batch;
+    }
+
+    private static void appendCsv(StringBuilder csv, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            csv.append(value);
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') csv.append('"');
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    // Writes finished batches in input order and keeps the totals
+    private static final class Writer implements Runnable {
+        private final BlockingQueue<Future<Batch>> pending;
+        private final WritableByteChannel out;
+        private final long start;
+
+        long rows;
+        long routed;
+        long errors;
+        long malformed;
+        volatile IOException failure;
+
+        Writer(BlockingQueue<Future<Batch>> pending, WritableByteChannel out, long start) {
+            this.pending = pending;
+            this.out = out;
+            this.start = start;
+        }
+
+        @Override
+        public void run() {
+            long nextProgress = PROGRESS_ROWS;
+            try {
+                write(ByteBuffer.wrap(HEADER.getBytes(StandardCharsets.US_ASCII)));
+                while (true) {
+                    Future<Batch> next = pending.take();
+                    if (next == END) {
+                        return;
+                    }
+                    Batch batch = next.get();
+                    write(ByteBuffer.wrap(batch.output));
+                    rows += batch.count;
+                    routed += batch.routed;
+                    errors += batch.errors;
+                    malformed += batch.malformed;
+
+                    if (rows >= nextProgress) {
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.err.printf("%d rows, %.0f rows/s%n", rows, rows / seconds);
+                        nextProgress += PROGRESS_ROWS;
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                drain();
+            } catch (InterruptedException e) {
+                failure = new InterruptedIOException("Writer interrupted");
+                drain();
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                failure = new IOException("Routing failed", e.getCause());
+                drain();
+            }
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+
+        // Keeps taking batches after a failure so the reader is never left blocked, even if interrupted again
+        private void drain() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (pending.take() == END) break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private interface BatchSink {
+        void accept(Batch batch) throws InterruptedException;
+    }
+
+    // Cuts raw input bytes into lines and lines into batches
+    private static final class LineReader {
+        private final BatchSink sink;
+        private final byte[] line = new byte[MAX_LINE_BYTES];
+        private long lineNumber;
+        private Batch batch;
+
+        // Set while skipping the rest of a line already reported as too long
+        private boolean overlong;
+
+        LineReader(BatchSink sink) {
+            this.sink = sink;
+        }
+
+        void readMapped(FileChannel in, long size) throws IOException, InterruptedException {
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(MAP_WINDOW_BYTES, size - position);
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                boolean last = position + length == size;
+                consume(window, last);
+                if (window.position() == 0 && !last) {
+                    // A single line longer than the window; report it and skip to its end
+                    startOverlong();
+                    window.position(window.limit());
+                }
+                // The next window starts at the first unfinished line
+                position += window.position();
+            }
+        }
+
+        void readChannel(ReadableByteChannel in) throws IOException, InterruptedException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+            boolean eof = false;
+            while (!eof) {
+                eof = in.read(buffer) < 0;
+                buffer.flip();
+                consume(buffer, eof);
+                if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+                    startOverlong();
+                    buffer.position(buffer.limit());
+                }
+                buffer.compact();
+            }
+        }
+
+        void finish() throws InterruptedException {
+            if (batch != null && batch.count > 0) {
+                sink.accept(batch);
+            }
+            batch = null;
+        }
+
+        /**
+         * Handles every complete line in the buffer, and the trailing line too
+         * when {@code last}. Leaves the position at the start of the first line
+         * not handled.
+         */
+        private void consume(ByteBuffer buffer, boolean last) throws InterruptedException {
+            int lineStart = buffer.position();
+            int limit = buffer.limit();
+            for (int i = lineStart; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    handleLine(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (last && lineStart < limit) {
+                handleLine(buffer, lineStart, limit);
+                lineStart = limit;
+            }
+            buffer.position(lineStart);
+        }
+
+        private void startOverlong() throws InterruptedException {
+            if (!overlong) {
+                lineNumber++;
+                add("line longer than " + MAX_LINE_BYTES + " bytes", null);
+                overlong = true;
+            }
+        }
+
+        private void handleLine(ByteBuffer buffer, int start, int end) throws InterruptedException {
+            if (overlong) {
+                // The tail of a line that was already reported
+                overlong = false;
+                return;
+            }
+            lineNumber++;
+
+            if (end > start && buffer.get(end - 1) == '\r') end--;
+            int length = end - start;
+            if (length > MAX_LINE_BYTES) {
+                add("line longer than " + MAX_LINE_BYTES + " bytes", null);
+                return;
+            }
+            buffer.get(start, line, 0, length);
+
+            // Blank lines carry no query and are not reported
+            if (isBlank(line, length)) {
+                return;
+            }
+
+            // Comma separated, or tab separated when the line has no comma
+            int separator = indexOf(line, length, (byte) ',');
+            if (separator < 0) separator = indexOf(line, length, (byte) '\t');
+            if (separator < 0) {
+                add("expected from,to", null);
+                return;
+            }
+            byte delimiter = line[separator];
+            if (indexOf(line, separator + 1, length, delimiter) >= 0) {
+                add("expected 2 fields", null);
+                return;
+            }
+
+            String from = field(line, 0, separator);
+            String to = field(line, separator + 1, length);
+            if (from.isEmpty() || to.isEmpty()) {
+                add("empty room", null);
+                return;
+            }
+            if (lineNumber == 1 && from.equalsIgnoreCase("from") && to.equalsIgnoreCase("to")) {
+                // Header row
+                return;
+            }
+            add(from, to);
+        }
+
+        private void add(String from, String to) throws InterruptedException {
+            if (batch == null) {
+                batch = new Batch();
+            }
+            batch.add(lineNumber, from, to);
+            if (batch.isFull()) {
+                sink.accept(batch);
+                batch = null;
+            }
+        }
+
+        private static boolean isBlank(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] != ' ' && bytes[i] != '\t') return false;
+            }
+            return true;
+        }
+
+        private static int indexOf(byte[] bytes, int length, byte target) {
+            return indexOf(bytes, 0, length, target);
+        }
+
+        private static int indexOf(byte[] bytes, int from, int length, byte target) {
+            for (int i = from; i < length; i++) {
+                if (bytes[i] == target) return i;
+            }
+            return -1;
+        }
+
+        // A trimmed field with one pair of surrounding double quotes removed
+        private static String field(byte[] bytes, int start, int end) {
+            while (start < end && (bytes[start] == ' ' || bytes[start] == '\t')) start++;
+            while (end > start && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t')) end--;
+            if (end - start >= 2 && bytes[start] == '"' && bytes[end - 1] == '"') {
+                start++;
+                end--;
+            }
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String input = null;
+        String output = "-";
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.equals("--precomputed")) {
+                System.err.println(BrooklynTechNavigation.enablePrecomputedRoutes().memoryReport());
+            } else if (arg.equals("--transit-node")) {
+                BrooklynTechNavigation.enableTransitNodeRouting();
+            } else if (arg.startsWith("--cache=")) {
+                BrooklynTechNavigation.enableRouteCache(Integer.parseInt(arg.substring("--cache=".length())),
+                        RouteCache.EvictionPolicy.LRU);
+            } else if (input == null) {
+                input = arg;
+            } else {
+                output = arg;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java BulkRouter <input|-> [output|-] [--threads=N] [--precomputed] [--transit-node] [--cache=N]");
+            System.exit(2);
+        }
+
+        // Results may be on stdout, so the summary goes to stderr
+        System.err.println(new BulkRouter(threads).run(input, output));
+    }
+}
@@ -0,0 +1,540 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable weighted graph stored in compressed sparse row form.
+ *
+ * Node IDs are interned into dense ints at build time. The edges leaving node
+ * {@code n} are the slots {@code offsets[n]} to {@code offsets[n + 1] - 1} of the
+ * parallel {@code targets} and {@code weights} arrays. Searches reuse per-thread
+ * scratch arrays stamped with a query epoch, so a shortest path query allocates
+ * nothing except the returned path.
+ *
+ * Besides plain Dijkstra, a query can run A*, aimed at the target by a lower
+ * bound built from node floors and positions, or bidirectional Dijkstra, which
+ * grows a search from each end until they meet. Every algorithm finds a path
+ * of the same travel time; where several paths tie, each may pick a different
+ * one of them.
+ */
+final class CompactGraph {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Node position when the layout gives none
+    static final int NO_POSITION = Integer.MIN_VALUE;
+
+    // DYNAMIC is answered from a navigator's maintained DynamicShortestPaths trees, never by this class
+    enum Algorithm { DIJKSTRA, A_STAR, BIDIRECTIONAL, DYNAMIC }
+
+    // Algorithms a CompactGraph runs itself
+    static final Algorithm[] SEARCHES = {Algorithm.DIJKSTRA, Algorithm.A_STAR, Algorithm.BIDIRECTIONAL};
+
+    private final String[] ids;
+    private final String[] labels;
+    private final Map<String, Integer> indexById;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    // A* lower bound per node pair: stairCost per floor apart plus walkCost per unit of straight-line distance
+    private final int[] floors;
+    private final int[] xs;
+    private final int[] ys;
+    private final boolean positioned;
+    private final double walkCost;
+    private final double stairCost;
+
+    private final ThreadLocal<SearchState> searchState;
+    private final ThreadLocal<SearchState> reverseState;
+
+    // Searches run and nodes settled per algorithm, to show how much of the graph each one explores
+    private final LongAdder[] searches = new LongAdder[Algorithm.values().length];
+    private final LongAdder[] settledNodes = new LongAdder[Algorithm.values().length];
+
+    // Reusable per-thread Dijkstra state; a slot is valid only when stamped with the current epoch
+    static final class SearchState {
+        final int[] distance;
+        final int[] parent;
+        final int[] stamp;
+        final boolean[] settled;
+        final IndexedMinHeap heap;
+        int epoch;
+
+        // Nodes settled by the last search on this state
+        int settledCount;
+
+        SearchState(int nodeCount) {
+            distance = new int[nodeCount];
+            parent = new int[nodeCount];
+            stamp = new int[nodeCount];
+            settled = new boolean[nodeCount];
+            heap = new IndexedMinHeap(nodeCount);
+        }
+
+        void reset() {
+            heap.clear();
+            settledCount = 0;
+            if (++epoch == 0) {
+                Arrays.fill(stamp, 0);
+                epoch = 1;
+            }
+        }
+
+        boolean reached(int node) { return stamp[node] == epoch; }
+
+        int distanceTo(int node) { return reached(node) ? distance[node] : UNREACHABLE; }
+
+        boolean isSettled(int node) { return reached(node) && settled[node]; }
+
+        void reach(int node, int dist, int from) {
+            if (stamp[node] != epoch) {
+                stamp[node] = epoch;
+                settled[node] = false;
+            }
+            distance[node] = dist;
+            parent[node] = from;
+        }
+    }
+
+    private CompactGraph(String[] ids, String[] labels, Map<String, Integer> indexById,
+                         int[] offsets, int[] targets, int[] weights, int[] floors, int[] xs, int[] ys) {
+        this.ids = ids;
+        this.labels = labels;
+        this.indexById = indexById;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.floors = floors;
+        this.xs = xs;
+        this.ys = ys;
+        this.searchState = ThreadLocal.withInitial(() -> new SearchState(ids.length));
+        this.reverseState = ThreadLocal.withInitial(() -> new SearchState(ids.length));
+        for (int a = 0; a < searches.length; a++) {
+            searches[a] = new LongAdder();
+            settledNodes[a] = new LongAdder();
+        }
+
+        boolean all = true;
+        for (int x : xs) all &= x != NO_POSITION;
+        this.positioned = all;
+
+        // The cheapest time per unit of distance any hallway edge allows; stairs move no distance
+        double walk = Double.POSITIVE_INFINITY;
+        if (positioned) {
+            for (int n = 0; n < ids.length; n++) {
+                for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                    double length = planarDistance(n, targets[e]);
+                    if (floors[n] == floors[targets[e]] && length > 0) {
+                        walk = Math.min(walk, weights[e] / length);
+                    }
+                }
+            }
+        }
+        if (walk == Double.POSITIVE_INFINITY) walk = 0;
+
+        // The cheapest time per floor any floor-changing edge allows, after the distance it also covers
+        double stair = Double.POSITIVE_INFINITY;
+        for (int n = 0; n < ids.length; n++) {
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                int floorsApart = Math.abs(floors[n] - floors[targets[e]]);
+                if (floorsApart > 0) {
+                    double covered = positioned ? walk * planarDistance(n, targets[e]) : 0;
+                    stair = Math.min(stair, Math.max(0, weights[e] - covered) / floorsApart);
+                }
+            }
+        }
+        if (stair == Double.POSITIVE_INFINITY) stair = 0;
+
+        // Shaved so rounding can never lift the bound above a real path's time
+        this.walkCost = walk * (1 - 1e-9);
+        this.stairCost = stair * (1 - 1e-9);
+    }
+
+    private double planarDistance(int a, int b) {
+        long dx = xs[a] - xs[b];
+        long dy = ys[a] - ys[b];
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // Never more than the time of any path from node to target, and consistent along every edge
+    int lowerBound(int node, int target) {
+        double bound = stairCost * Math.abs(floors[node] - floors[target]);
+        if (positioned) bound += walkCost * planarDistance(node, target);
+        return (int) bound;
+    }
+
+    int nodeCount() { return ids.length; }
+
+    int edgeCount() { return targets.length; }
+
+    // Dense index of a node ID, or -1 if the graph has no such node
+    int indexOf(String id) {
+        Integer index = indexById.get(id);
+        return index != null ? index : -1;
+    }
+
+    String id(int node) { return ids[node]; }
+
+    String label(int node) { return labels[node]; }
+
+    int floor(int node) { return floors[node]; }
+
+    int edgeStart(int node) { return offsets[node]; }
+
+    int edgeEnd(int node) { return offsets[node + 1]; }
+
+    int target(int edge) { return targets[edge]; }
+
+    int weight(int edge) { return weights[edge]; }
+
+    // Cheapest direct edge between two nodes, or -1 if they are not adjacent
+    int weightBetween(int from, int to) {
+        int best = -1;
+        for (int e = offsets[from]; e < offsets[from + 1]; e++) {
+            if (targets[e] == to && (best < 0 || weights[e] < best)) {
+                best = weights[e];
+            }
+        }
+        return best;
+    }
+
+    SearchState searchState() {
+        return searchState.get();
+    }
+
+    /**
+     * The same nodes and arcs with new per-arc weights, indexed like weight(e);
+     * arcs weighted UNREACHABLE are left out. The search lower bound is derived
+     * again from the new weights, so A* stays exact when an edge gets faster.
+     */
+    CompactGraph withWeights(int[] arcWeights) {
+        int[] newOffsets = new int[offsets.length];
+        int kept = 0;
+        for (int e = 0; e < arcWeights.length; e++) {
+            if (arcWeights[e] != UNREACHABLE) kept++;
+        }
+        int[] newTargets = new int[kept];
+        int[] newWeights = new int[kept];
+        int slot = 0;
+        for (int n = 0; n < ids.length; n++) {
+            for (int e = offsets[n]; e < offsets[n + 1]; e++) {
+                if (arcWeights[e] == UNREACHABLE) continue;
+                newTargets[slot] = targets[e];
+                newWeights[slot++] = arcWeights[e];
+            }
+            newOffsets[n + 1] = slot;
+        }
+        return new CompactGraph(ids, labels, indexById, newOffsets, newTargets, newWeights, floors, xs, ys);
+    }
+
+    // Nodes settled by this thread's last search with the algorithm
+    int lastSettled(Algorithm algorithm) {
+        SearchState state = searchState.get();
+        return algorithm == Algorithm.BIDIRECTIONAL
+                ? state.settledCount + reverseState.get().settledCount : state.settledCount;
+    }
+
+    long searchCount(Algorithm algorithm) { return searches[algorithm.ordinal()].sum(); }
+
+    long settledCount(Algorithm algorithm) { return settledNodes[algorithm.ordinal()].sum(); }
+
+    // Mean nodes settled per search since startup, 0 before the first one
+    double settledPerSearch(Algorithm algorithm) {
+        long count = searchCount(algorithm);
+        return count == 0 ? 0 : (double) settledCount(algorithm) / count;
+    }
+
+    private void countSearch(Algorithm algorithm, int settled) {
+        searches[algorithm.ordinal()].increment();
+        settledNodes[algorithm.ordinal()].add(settled);
+    }
+
+    /**
+     * Shortest path from source to target as a sequence of node indices, or null
+     * if the target cannot be reached.
+     */
+    int[] shortestPath(int source, int target) {
+        SearchState state = searchState.get();
+        if (!search(state, source, target)) {
+            return null;
+        }
+        return tracePath(state, source, target);
+    }
+
+    int[] shortestPath(int source, int target, Algorithm algorithm) {
+        switch (algorithm) {
+            case A_STAR: {
+                SearchState state = searchState.get();
+                return searchAStar(state, source, target) ? tracePath(state, source, target) : null;
+            }
+            case BIDIRECTIONAL: {
+                SearchState forward = searchState.get();
+                SearchState backward = reverseState.get();
+                int meeting = searchBidirectional(forward, backward, source, target);
+                return meeting < 0 ? null : tracePath(forward, backward, source, target, meeting);
+            }
+            case DYNAMIC:
+                throw new IllegalArgumentException("DYNAMIC queries go through DynamicShortestPaths");
+            default:
+                return shortestPath(source, target);
+        }
+    }
+
+    // Travel time along the shortest path, or UNREACHABLE
+    int distance(int source, int target) {
+        SearchState state = searchState.get();
+        return search(state, source, target) ? state.distance[target] : UNREACHABLE;
+    }
+
+    int distance(int source, int target, Algorithm algorithm) {
+        switch (algorithm) {
+            case A_STAR: {
+                SearchState state = searchState.get();
+                return searchAStar(state, source, target) ? state.distance[target] : UNREACHABLE;
+            }
+            case BIDIRECTIONAL: {
+                SearchState forward = searchState.get();
+                SearchState backward = reverseState.get();
+                int meeting = searchBidirectional(forward, backward, source, target);
+                return meeting < 0 ? UNREACHABLE : forward.distance[meeting] + backward.distance[meeting];
+            }
+            case DYNAMIC:
+                throw new IllegalArgumentException("DYNAMIC queries go through DynamicShortestPaths");
+            default:
+                return distance(source, target);
+        }
+    }
+
+    // Dijkstra from source, stopping once target is settled; target -1 settles the whole graph
+    boolean search(SearchState state, int source, int target) {
+        state.reset();
+        IndexedMinHeap heap = state.heap;
+        state.reach(source, 0, -1);
+        heap.insertOrDecrease(source, 0);
+
+        while (!heap.isEmpty()) {
+            int node = heap.pollMin();
+            state.settled[node] = true;
+            state.settledCount++;
+            if (node == target) {
+                heap.clear();
+                countSearch(Algorithm.DIJKSTRA, state.settledCount);
+                return true;
+            }
+
+            int dist = state.distance[node];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                int candidate = dist + weights[e];
+                if (!state.reached(next) || (!state.settled[next] && candidate < state.distance[next])) {
+                    state.reach(next, candidate, node);
+                    heap.insertOrDecrease(next, candidate);
+                }
+            }
+        }
+        countSearch(Algorithm.DIJKSTRA, state.settledCount);
+        return target < 0;
+    }
+
+    // Dijkstra on distance plus lowerBound, which settles each node once because the bound is consistent
+    boolean searchAStar(SearchState state, int source, int target) {
+        state.reset();
+        IndexedMinHeap heap = state.heap;
+        state.reach(source, 0, -1);
+        heap.insertOrDecrease(source, lowerBound(source, target));
+
+        while (!heap.isEmpty()) {
+            int node = heap.pollMin();
+            state.settled[node] = true;
+            state.settledCount++;
+            if (node == target) {
+                heap.clear();
+                countSearch(Algorithm.A_STAR, state.settledCount);
+                return true;
+            }
+
+            int dist = state.distance[node];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                int candidate = dist + weights[e];
+                if (!state.reached(next) || (!state.settled[next] && candidate < state.distance[next])) {
+                    state.reach(next, candidate, node);
+                    heap.insertOrDecrease(next, candidate + lowerBound(next, target));
+                }
+            }
+        }
+        countSearch(Algorithm.A_STAR, state.settledCount);
+        return false;
+    }
+
+    /**
+     * Dijkstra from both ends at once, always advancing the side with the
+     * smaller frontier key; edges are two-way, so the backward search walks the
+     * same arrays. Stops once the two smallest keys add up to at least the best
+     * meeting found, and returns the node where that path crosses over, or -1.
+     */
+    int searchBidirectional(SearchState forward, SearchState backward, int source, int target) {
+        forward.reset();
+        backward.reset();
+        forward.reach(source, 0, -1);
+        forward.heap.insertOrDecrease(source, 0);
+        backward.reach(target, 0, -1);
+        backward.heap.insertOrDecrease(target, 0);
+
+        int best = source == target ? 0 : UNREACHABLE;
+        int meeting = source == target ? source : -1;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()) {
+            int forwardKey = forward.heap.key(forward.heap.peekMin());
+            int backwardKey = backward.heap.key(backward.heap.peekMin());
+            if (best != UNREACHABLE && (long) forwardKey + backwardKey >= best) break;
+
+            SearchState side = forwardKey <= backwardKey ? forward : backward;
+            SearchState other = side == forward ? backward : forward;
+            int node = side.heap.pollMin();
+            side.settled[node] = true;
+            side.settledCount++;
+
+            int dist = side.distance[node];
+            for (int e = offsets[node]; e < offsets[node + 1]; e++) {
+                int next = targets[e];
+                int candidate = dist + weights[e];
+                if (!side.reached(next) || (!side.settled[next] && candidate < side.distance[next])) {
+                    side.reach(next, candidate, node);
+                    side.heap.insertOrDecrease(next, candidate);
+                }
+                if (side.reached(next) && other.reached(next)) {
+                    long through = (long) side.distance[next] + other.distance[next];
+                    if (through < best) {
+                        best = (int) through;
+                        meeting = next;
+                    }
+                }
+            }
+        }
+        forward.heap.clear();
+        backward.heap.clear();
+        countSearch(Algorithm.BIDIRECTIONAL, forward.settledCount + backward.settledCount);
+        return meeting;
+    }
+
+    // Source to meeting along forward parents, then on to target along backward parents
+    static int[] tracePath(SearchState forward, SearchState backward, int source, int target, int meeting) {
+        int[] head = tracePath(forward, source, meeting);
+        int tail = 0;
+        for (int node = meeting; node != target; node = backward.parent[node]) {
+            tail++;
+        }
+        int[] path = Arrays.copyOf(head, head.length + tail);
+        for (int node = meeting, i = head.length; node != target; i++) {
+            node = backward.parent[node];
+            path[i] = node;
+        }
+        return path;
+    }
+
+    static int[] tracePath(SearchState state, int source, int target) {
+        int length = 1;
+        for (int node = target; node != source; node = state.parent[node]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = target, i = length - 1; i >= 0; node = state.parent[node], i--) {
+            path[i] = node;
+        }
+        return path;
+    }
+
+    /** Collects nodes and undirected edges, then freezes them into CSR arrays. */
+    static final class Builder {
+        private final Map<String, Integer> indexById = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private int[] nodeFloor = new int[256];
+        private int[] nodeX = new int[256];
+        private int[] nodeY = new int[256];
+        private int[] edgeFrom = new int[256];
+        private int[] edgeTo = new int[256];
+        private int[] edgeWeight = new int[256];
+        private int edgeCount;
+
+        // Adding an existing ID again only replaces its label
+        int addNode(String id, String label) {
+            return addNode(id, label, 0, NO_POSITION, NO_POSITION);
+        }
+
+        // A node on a floor at a position, which A* uses to aim; the position may be NO_POSITION
+        int addNode(String id, String label, int floor, int x, int y) {
+            Integer index = indexById.get(id);
+            if (index != null) {
+                labels.set(index, label);
+                return index;
+            }
+            int node = ids.size();
+            if (node == nodeFloor.length) {
+                nodeFloor = Arrays.copyOf(nodeFloor, node * 2);
+                nodeX = Arrays.copyOf(nodeX, node * 2);
+                nodeY = Arrays.copyOf(nodeY, node * 2);
+            }
+            nodeFloor[node] = floor;
+            nodeX[node] = x;
+            nodeY[node] = y;
+            indexById.put(id, node);
+            ids.add(id);
+            labels.add(label);
+            return node;
+        }
+
+        boolean hasNode(String id) {
+            return indexById.containsKey(id);
+        }
+
+        // Bidirectional edge; ignored if either endpoint has not been added
+        boolean addEdge(String fromId, String toId, int weight) {
+            Integer from = indexById.get(fromId);
+            Integer to = indexById.get(toId);
+            if (from == null || to == null) {
+                return false;
+            }
+            addArc(from, to, weight);
+            addArc(to, from, weight);
+            return true;
+        }
+
+        private void addArc(int from, int to, int weight) {
+            if (edgeCount == edgeFrom.length) {
+                int capacity = edgeCount * 2;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeWeight[edgeCount] = weight;
+            edgeCount++;
+        }
+
+        CompactGraph build() {
+            int nodeCount = ids.size();
+            int[] offsets = new int[nodeCount + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offsets[edgeFrom[e] + 1]++;
+            }
+            for (int n = 0; n < nodeCount; n++) {
+                offsets[n + 1] += offsets[n];
+            }
+
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            int[] next = Arrays.copyOf(offsets, nodeCount);
+            for (int e = 0; e < edgeCount; e++) {
+                int slot = next[edgeFrom[e]]++;
+                targets[slot] = edgeTo[e];
+                weights[slot] = edgeWeight[e];
+            }
+
+            return new CompactGraph(ids.toArray(new String[0]), labels.toArray(new String[0]),
+                    new HashMap<>(indexById), offsets, targets, weights, Arrays.copyOf(nodeFloor, nodeCount),
+                    Arrays.copyOf(nodeX, nodeCount), Arrays.copyOf(nodeY, nodeCount));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-dependent stair and hallway costs for a passing period.
+ *
+ * Every route handed out adds one student to each stair segment it climbs
+ * (one floor of one staircase) and to the hallway approach it uses at both
+ * ends (one staircase on one floor). A segment's travel time grows with its
+ * load following the BPR curve used for road traffic,
+ * {@code freeFlow * (1 + ALPHA * (load / capacity)^BETA)}, so once a corner
+ * staircase fills up a farther staircase becomes the faster choice.
+ *
+ * Loads count only the current window; the first query after the window
+ * expires swaps in an empty one. Counters are LongAdders, so concurrent route
+ * requests never wait on each other. Two requests that race may both see the
+ * same load and pick the same staircase; the next request sees both.
+ */
+public final class CongestionModel {
+
+    // BPR curve parameters
+    private static final double ALPHA = 0.15;
+    private static final double BETA = 4;
+
+    private static final int STAIR_COUNT = BrooklynTechNavigation.ALL_STAIRS.length;
+
+    private final long windowNanos;
+    private final int stairCapacity;
+    private final int hallwayCapacity;
+    private final LongSupplier clock;
+    private final AtomicReference<Window> window;
+
+    // Loads for one passing period, replaced wholesale when the period ends
+    private static final class Window {
+        final long start;
+        final int floorCount;
+
+        // Students per stair segment, indexed [stair * floorCount + lower floor]
+        final LongAdder[] stairLoad;
+
+        // Students walking to or from a staircase, indexed [stair * floorCount + floor]
+        final LongAdder[] hallwayLoad;
+
+        Window(long start, int floorCount) {
+            this.start = start;
+            this.floorCount = floorCount;
+            this.stairLoad = adders(STAIR_COUNT * floorCount);
+            this.hallwayLoad = adders(STAIR_COUNT * floorCount);
+        }
+
+        // Same period with more floors; the existing counters carry over, so no increment is lost
+        Window(Window old, int floorCount) {
+            this(old.start, floorCount);
+            for (int stair = 0; stair < STAIR_COUNT; stair++) {
+                for (int floor = 0; floor < old.floorCount; floor++) {
+                    stairLoad[stair * floorCount + floor] = old.stairLoad[stair * old.floorCount + floor];
+                    hallwayLoad[stair * floorCount + floor] = old.hallwayLoad[stair * old.floorCount + floor];
+                }
+            }
+        }
+
+        private static LongAdder[] adders(int count) {
+            LongAdder[] adders = new LongAdder[count];
+            for (int i = 0; i < count; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+    }
+
+    /**
+     * @param windowMinutes   length of a passing period
+     * @param stairCapacity   students one floor of one staircase carries per window at free-flow speed
+     * @param hallwayCapacity students one staircase's hallway approach carries per window on one floor
+     * @param floorCount      floors in the building, basement included; see ensureFloors for taller layouts
+     */
+    public CongestionModel(double windowMinutes, int stairCapacity, int hallwayCapacity, int floorCount) {
+        this(windowMinutes, stairCapacity, hallwayCapacity, floorCount, System::nanoTime);
+    }
+
+    // The clock returns nanoseconds, so simulations can drive the window with their own time
+    public CongestionModel(double windowMinutes, int stairCapacity, int hallwayCapacity, int floorCount,
+                           LongSupplier clock) {
+        if (windowMinutes <= 0 || stairCapacity <= 0 || hallwayCapacity <= 0 || floorCount <= 0) {
+            throw new IllegalArgumentException("Window, capacities and floor count must be positive");
+        }
+        this.windowNanos = (long) (windowMinutes * TimeUnit.MINUTES.toNanos(1));
+        this.stairCapacity = stairCapacity;
+        this.hallwayCapacity = hallwayCapacity;
+        this.clock = clock;
+        this.window = new AtomicReference<>(new Window(clock.getAsLong(), floorCount));
+    }
+
+    // Current window, swapping in an empty one if it has expired; losers of the swap use the winner's
+    private Window current() {
+        Window w = window.get();
+        long now = clock.getAsLong();
+        if (now - w.start < windowNanos) {
+            return w;
+        }
+        Window next = new Window(now, w.floorCount);
+        return window.compareAndSet(w, next) ? next : window.get();
+    }
+
+    /** Starts a new passing period now, dropping every load counted so far. */
+    public void startPassingPeriod() {
+        window.updateAndGet(w -> new Window(clock.getAsLong(), w.floorCount));
+    }
+
+    /**
+     * Grows the counters to cover at least the given number of floors, keeping
+     * this period's loads. Called whenever a route may reach a floor the model
+     * was not sized for, so a taller layout published later still routes.
+     */
+    void ensureFloors(int floors) {
+        while (true) {
+            Window w = window.get();
+            if (w.floorCount >= floors || window.compareAndSet(w, new Window(w, floors))) {
+                return;
+            }
+        }
+    }
+
+    private static double bpr(double freeFlow, long load, int capacity) {
+        if (load == 0) {
+            return freeFlow;
+        }
+        return freeFlow * (1 + ALPHA * Math.pow((double) load / capacity, BETA));
+    }
+
+    /**
+     * Walking time in minutes through one staircase at the current load. An
+     * unloaded segment costs its free-flow time unchanged, so an empty building
+     * gives exactly RoutingKernel.travelMinutes.
+     */
+    double travelTime(BuildingLayout layout, String from, String to, int stair) {
+        return travelTime(current(), layout, from, to, stair);
+    }
+
+    private double travelTime(Window w, BuildingLayout layout, String from, String to, int stair) {
+        BrooklynTechNavigation.Coordinate fromCoord = layout.coordinateOf(from);
+        BrooklynTechNavigation.Coordinate toCoord = layout.coordinateOf(to);
+        BrooklynTechNavigation.Coordinate stairCoord = BrooklynTechNavigation.ALL_STAIRS[stair];
+        int fromFloor = BrooklynTechNavigation.getFloorFromRoom(from);
+        int toFloor = BrooklynTechNavigation.getFloorFromRoom(to);
+        int base = stair * w.floorCount;
+
+        // The climb is summed on its own, so free-flow floors add up to floors * STAIR_TIME_PER_FLOOR exactly
+        double climb = 0;
+        for (int floor = Math.min(fromFloor, toFloor); floor < Math.max(fromFloor, toFloor); floor++) {
+            climb += bpr(BrooklynTechNavigation.STAIR_TIME_PER_FLOOR, w.stairLoad[base + floor].sum(), stairCapacity);
+        }
+
+        double totalTime = bpr(RoutingKernel.walkMinutes(fromCoord.distanceTo(stairCoord)),
+                w.hallwayLoad[base + fromFloor].sum(), hallwayCapacity);
+        totalTime += climb;
+        totalTime += bpr(RoutingKernel.walkMinutes(stairCoord.distanceTo(toCoord)),
+                w.hallwayLoad[base + toFloor].sum(), hallwayCapacity);
+        return totalTime;
+    }
+
+    /**
+     * Open staircase with the lowest travel time at the current load, or -1 if
+     * none serves both floors. Ties go to the earlier staircase in ALL_STAIRS
+     * order, like findBestStaircase.
+     */
+    int chooseStair(BuildingLayout layout, String from, String to) {
+        Window w = current();
+        int fromFloor = BrooklynTechNavigation.getFloorFromRoom(from);
+        int toFloor = BrooklynTechNavigation.getFloorFromRoom(to);
+        int available = BrooklynTechNavigation.middleStairsServe(fromFloor)
+                && BrooklynTechNavigation.middleStairsServe(toFloor)
+                ? STAIR_COUNT : BrooklynTechNavigation.CORNER_STAIRS.length;
+
+        int best = -1;
+        double bestTime = Double.POSITIVE_INFINITY;
+        for (int stair = 0; stair < available; stair++) {
+            if (layout.isStairClosed(stair)) continue;
+            double time = travelTime(w, layout, from, to, stair);
+            if (time < bestTime) {
+                bestTime = time;
+                best = stair;
+            }
+        }
+        return best;
+    }
+
+    /** Counts one student climbing between two floors through a staircase. */
+    void record(int fromFloor, int toFloor, int stair) {
+        Window w = current();
+        int base = stair * w.floorCount;
+        w.hallwayLoad[base + fromFloor].increment();
+        w.hallwayLoad[base + toFloor].increment();
+        for (int floor = Math.min(fromFloor, toFloor); floor < Math.max(fromFloor, toFloor); floor++) {
+            w.stairLoad[base + floor].increment();
+        }
+    }
+
+    /** Students sent through a staircase so far this window, counting each once. */
+    public long studentsOnStair(int stair) {
+        // Each student adds one to the hallway approach at both ends of their climb
+        Window w = current();
+        long total = 0;
+        for (int floor = 0; floor < w.floorCount; floor++) {
+            total += w.hallwayLoad[stair * w.floorCount + floor].sum();
+        }
+        return total / 2;
+    }
+
+    /** Busiest single floor of a staircase so far this window. */
+    public long peakStairLoad(int stair) {
+        Window w = current();
+        long peak = 0;
+        for (int floor = 0; floor < w.floorCount; floor++) {
+            peak = Math.max(peak, w.stairLoad[stair * w.floorCount + floor].sum());
+        }
+        return peak;
+    }
+
+    public int getStairCapacity() { return stairCapacity; }
+    public int getHallwayCapacity() { return hallwayCapacity; }
+
+    public String loadReport() {
+        StringBuilder report = new StringBuilder("Staircase load this passing period:");
+        for (int stair = 0; stair < STAIR_COUNT; stair++) {
+            report.append(String.format("%n  %-4s %6d students, busiest floor %5d (capacity %d)",
+                    BrooklynTechNavigation.STAIR_NAMES[stair], studentsOnStair(stair), peakStairLoad(stair),
+                    stairCapacity));
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.*;
+
+/**
+ * Routes one passing period twice, once with the geometric findBestStaircase
+ * choice and once with congestion-aware routing, and reports how students
+ * spread over the staircases and how long their trips take at the loads the
+ * period ends with. Then routes the same period through getDirectionsBatch at
+ * 1 and all cores to show load accounting does not serialize requests.
+ *
+ * Usage: java CongestionRoutingBenchmark [students] [rounds]
+ */
+public class CongestionRoutingBenchmark {
+
+    public static void main(String[] args) {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 6000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        List<BrooklynTechNavigation.RoutePair> pairs = BatchRoutingBenchmark.passingPeriod(students, new Random(42));
+
+        System.out.println("=== Congestion-aware routing for one passing period ===");
+        System.out.printf("Students: %d, stair capacity %d, hallway capacity %d per period%n%n",
+                students, BrooklynTechNavigation.STAIR_CAPACITY, BrooklynTechNavigation.HALLWAY_CAPACITY);
+
+        compare("Geometric (findBestStaircase)", layout, pairs, false);
+        compare("Congestion-aware", layout, pairs, true);
+
+        // Throughput of the public API with congestion routing on
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : new TreeSet<>(Arrays.asList(1, cores))) {
+            long nanos = 0;
+            double sink = 0;
+            for (int round = 0; round < rounds + 2; round++) {
+                BrooklynTechNavigation.enableCongestionRouting(fixedWindow(layout));
+                long start = System.nanoTime();
+                for (BrooklynTechNavigation.NavigationResult result
+                        : BrooklynTechNavigation.getDirectionsBatch(pairs, threads)) {
+                    sink += result.getEstimatedTime();
+                }
+                // First two rounds warm up
+                if (round >= 2) nanos += System.nanoTime() - start;
+            }
+            System.out.printf("getDirectionsBatch, %2d thread(s): %10.0f routes/s (checksum %.1f)%n",
+                    threads, (double) students * rounds / (nanos / 1e9), sink);
+        }
+        System.out.println(BrooklynTechNavigation.getCongestionModel().loadReport());
+        BrooklynTechNavigation.disableCongestionRouting();
+    }
+
+    // A window that never expires, so the whole run counts as one passing period
+    private static CongestionModel fixedWindow(BuildingLayout layout) {
+        return new CongestionModel(BrooklynTechNavigation.PASSING_PERIOD_MINUTES, BrooklynTechNavigation.STAIR_CAPACITY,
+                BrooklynTechNavigation.HALLWAY_CAPACITY, layout.getFloorCount(), () -> 0L);
+    }
+
+    private static void compare(String name, BuildingLayout layout, List<BrooklynTechNavigation.RoutePair> pairs,
+                                boolean congestionAware) {
+        CongestionModel model = fixedWindow(layout);
+        int[] chosen = new int[pairs.size()];
+        double freeFlowTotal = 0;
+        int climbing = 0;
+
+        for (int i = 0; i < pairs.size(); i++) {
+            String from = pairs.get(i).getFrom();
+            String to = pairs.get(i).getTo();
+            int fromFloor = BrooklynTechNavigation.getFloorFromRoom(from);
+            int toFloor = BrooklynTechNavigation.getFloorFromRoom(to);
+            chosen[i] = -1;
+            if (fromFloor == toFloor) continue;
+
+            int stair = congestionAware
+                    ? model.chooseStair(layout, from, to)
+                    : Arrays.asList(BrooklynTechNavigation.ALL_STAIRS).indexOf(BrooklynTechNavigation.findBestStaircase(
+                            layout, layout.coordinateOf(from), layout.coordinateOf(to), fromFloor, toFloor));
+            model.record(fromFloor, toFloor, stair);
+            chosen[i] = stair;
+            freeFlowTotal += BrooklynTechNavigation.routeTime(layout, from, to, BrooklynTechNavigation.ALL_STAIRS[stair]);
+            climbing++;
+        }
+
+        // Every trip is timed at the loads the period ended with
+        double loadedTotal = 0;
+        double worst = 0;
+        for (int i = 0; i < pairs.size(); i++) {
+            if (chosen[i] < 0) continue;
+            double time = model.travelTime(layout, pairs.get(i).getFrom(), pairs.get(i).getTo(), chosen[i]);
+            loadedTotal += time;
+            worst = Math.max(worst, time);
+        }
+
+        System.out.println(name + ":");
+        System.out.printf("  %d cross-floor trips, mean %.2f min without traffic, %.2f min with traffic, worst %.2f min%n",
+                climbing, freeFlowTotal / climbing, loadedTotal / climbing, worst);
+        System.out.println("  " + model.loadReport().replace("\n", "\n  "));
+        System.out.println();
+    }
+}
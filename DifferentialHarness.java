@@ -0,0 +1,571 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Differential check of every routing engine against the plain algorithm of
+ * its model, and a separate latency regression gate.
+ *
+ * The room-position model (BrooklynTechNavigation) is answered by the
+ * findBestStaircase scan, which is the reference, and by the routing kernel,
+ * the route cache, the precomputed route table, the travel time matrix and the
+ * transit-node router. The corridor graph (BrooklynTechNavigator) is answered
+ * by Dijkstra, which is the reference, and by A*, bidirectional search and the
+ * dynamic shortest path trees. Every ordered pair of open rooms goes through
+ * every engine on a pool of worker threads. Any time that differs from the
+ * reference, even in the last bit, is a mismatch. Engines that remember
+ * answers are asked each pair twice, so the remembered answer is checked too.
+ *
+ * With --closures both models lose the same parts of the building: the NE and
+ * W12 staircases and the fourth floor's E wing. The graph closes them on the
+ * navigator after its dynamic trees are built, so graph-dynamic is checked on
+ * trees that were repaired rather than built on the damaged graph.
+ *
+ * The two models come from different surveys, so their times are not
+ * comparable. Instead, rooms are mapped between them (4N5 is N5F4) and the
+ * harness counts the mapped pairs that one model can route and the other
+ * cannot. Both layouts are fixed, so that count is too, and a change to
+ * either layout that moves it is flagged.
+ *
+ * The check is deterministic and runs as DifferentialTest under gradle check,
+ * or from here, failing on any mismatch or a changed cross-model count. With
+ * --latency the engines are instead timed on a sample of pairs, one at a time,
+ * and compared with a baseline file recorded on the same machine; the run
+ * fails when an engine is slower than its baseline by more than the
+ * threshold. The first run, or a run with --record, writes the baseline
+ * instead of comparing against it.
+ *
+ * Usage: java DifferentialHarness [--closures] [--threads=N]
+ *        java DifferentialHarness --latency [--closures] [--baseline=file] [--threshold=0.25] [--record]
+ */
+public class DifferentialHarness {
+
+    static final Path DEFAULT_BASELINE = Path.of("differential-baseline.properties");
+    static final double DEFAULT_THRESHOLD = 0.25;
+
+    // Mapped pairs routable in only one model, without and with --closures
+    private static final long CROSS_MODEL = 2050;
+    private static final long CROSS_MODEL_WITH_CLOSURES = 1954;
+    private static final int TIMED_PAIRS = 20_000;
+    private static final int TIMED_ROUNDS = 5;
+    private static final long MIN_ROUND_NANOS = 50_000_000;
+    private static final int EXAMPLES_PER_ENGINE = 5;
+
+    // Source rooms checked by one fork/join task
+    private static final int SPLIT_THRESHOLD = 8;
+
+    // Damage applied to both models by --closures
+    private static final String[] CLOSED_STAIRS = {"NE", "W12"};
+    private static final int BLOCKED_FLOOR = 4;
+    private static final char BLOCKED_SIDE = 'E';
+
+    /**
+     * Room IDs of the two models. The room-position model writes the floor
+     * first (4N5, 1Gym) and the graph last (N5F4, GymF1); the basement pool is
+     * named differently in each.
+     */
+    static final class RoomMapping {
+        private static final Map<String, String> RENAMED = Map.of("0Pool", "B_Pool");
+        private static final Map<String, String> RENAMED_BACK = Map.of("B_Pool", "0Pool");
+
+        private RoomMapping() {}
+
+        static String toGraphId(String room) {
+            String renamed = RENAMED.get(room);
+            if (renamed != null) return renamed;
+            int digits = 0;
+            while (digits < room.length() && Character.isDigit(room.charAt(digits))) digits++;
+            if (digits == 0 || digits == room.length()) return null;
+            return room.substring(digits) + "F" + room.substring(0, digits);
+        }
+
+        static String toRoomId(String node) {
+            String renamed = RENAMED_BACK.get(node);
+            if (renamed != null) return renamed;
+            int f = node.lastIndexOf('F');
+            if (f <= 0 || f == node.length() - 1) return null;
+            for (int i = f + 1; i < node.length(); i++) {
+                if (!Character.isDigit(node.charAt(i))) return null;
+            }
+            return node.substring(f + 1) + node.substring(0, f);
+        }
+
+        static boolean isStairLanding(String node) {
+            return node.matches(".*StairF\\d+");
+        }
+    }
+
+    // Travel time between two rooms of a model, by the model's room index; infinite when unreachable
+    abstract static class Engine {
+        final String name;
+        final boolean remembers;
+
+        final LongAdder mismatches = new LongAdder();
+        final Queue<String> examples = new ConcurrentLinkedQueue<>();
+        double nanosPerQuery;
+
+        Engine(String name, boolean remembers) {
+            this.name = name;
+            this.remembers = remembers;
+        }
+
+        abstract double time(int from, int to);
+    }
+
+    // One model's rooms and its engines; the first engine is the reference
+    static final class Model {
+        final String name;
+        final String unit;
+        final String places;
+        final String[] rooms;
+        final boolean[] open;
+        final List<Engine> engines;
+        final double[][] reference;
+        final LongAdder pairs = new LongAdder();
+
+        Model(String name, String unit, String places, String[] rooms, boolean[] open, List<Engine> engines) {
+            this.name = name;
+            this.unit = unit;
+            this.places = places;
+            this.rooms = rooms;
+            this.open = open;
+            this.engines = engines;
+            this.reference = new double[rooms.length][];
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path baselineFile = DEFAULT_BASELINE;
+        double threshold = DEFAULT_THRESHOLD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean latency = false;
+        boolean record = false;
+        boolean closures = false;
+        for (String arg : args) {
+            if (arg.startsWith("--baseline=")) {
+                baselineFile = Path.of(arg.substring("--baseline=".length()));
+            } else if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(arg.substring("--threshold=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.equals("--latency")) {
+                latency = true;
+            } else if (arg.equals("--record")) {
+                record = true;
+            } else if (arg.equals("--closures")) {
+                closures = true;
+            } else {
+                System.err.println("Usage: java DifferentialHarness [--closures] [--threads=N]");
+                System.err.println("       java DifferentialHarness --latency [--closures] [--baseline=file] "
+                        + "[--threshold=0.25] [--record]");
+                System.exit(2);
+            }
+        }
+
+        Model[] models = models(closures);
+        boolean failed = latency
+                ? compareLatency(models, baselineFile, threshold, record, closures)
+                : !checkAndReport(models, threads, closures);
+        System.out.println(failed ? "FAILED" : "PASSED");
+        if (failed) System.exit(1);
+    }
+
+    // The room-position model and the corridor graph, both damaged the same way with closures
+    static Model[] models(boolean closures) {
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        if (closures) {
+            // Engines must agree on a damaged building too, not just the full one
+            for (String stair : CLOSED_STAIRS) layout = layout.withStairClosed(stair);
+            layout = layout.withWingBlocked(BLOCKED_FLOOR, BLOCKED_SIDE);
+        }
+        return new Model[] {roomPositionModel(layout), graphModel(new BrooklynTechNavigator(), closures ? layout : null)};
+    }
+
+    // Every ordered pair of open rooms through every engine of both models, on a pool of worker threads
+    static void check(Model[] models, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Model model : models) {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (int from = 0; from < model.rooms.length; from += SPLIT_THRESHOLD) {
+                    int first = from;
+                    int last = Math.min(model.rooms.length, from + SPLIT_THRESHOLD);
+                    tasks.add(ForkJoinTask.adapt(() -> check(model, first, last)));
+                }
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Mapped pairs only one model can route; fixed by the two layouts, so any change is flagged
+    static long expectedCrossModel(boolean closures) {
+        return closures ? CROSS_MODEL_WITH_CLOSURES : CROSS_MODEL;
+    }
+
+    // Runs the check and prints its report; true when every engine matches and the cross-model count is as expected
+    private static boolean checkAndReport(Model[] models, int threads, boolean closures) {
+        System.out.println("=== Differential check of the routing engines ===");
+        long start = System.nanoTime();
+        check(models, threads);
+        System.out.printf("Checked every ordered pair on %d threads in %.1f s%n", threads,
+                (System.nanoTime() - start) / 1e9);
+
+        boolean passed = true;
+        for (Model model : models) {
+            System.out.printf("%s model: %d %s, %d pairs, times in %s, reference %s%n", model.name,
+                    model.rooms.length, model.places, model.pairs.sum(), model.unit, model.engines.get(0).name);
+            for (Engine engine : model.engines.subList(1, model.engines.size())) {
+                long count = engine.mismatches.sum();
+                passed &= count == 0;
+                System.out.printf("  %-22s %s%n", engine.name, count == 0 ? "matches" : count + " MISMATCHES");
+                for (String example : engine.examples) System.out.println("      " + example);
+            }
+        }
+
+        long crossModel = crossModelReport(models[0], models[1]);
+        if (crossModel != expectedCrossModel(closures)) {
+            passed = false;
+            System.out.println("Pairs routable in only one model changed from " + expectedCrossModel(closures)
+                    + " to " + crossModel);
+        }
+        return passed;
+    }
+
+    // Times every engine and compares with the baseline file; true when one regressed past the threshold
+    private static boolean compareLatency(Model[] models, Path baselineFile, double threshold, boolean record,
+                                          boolean closures) throws IOException {
+        for (Model model : models) {
+            time(model, new Random(42));
+        }
+
+        // Entries for the other scenario are kept when this one is recorded
+        Properties baseline = new Properties();
+        if (Files.isRegularFile(baselineFile)) {
+            try (Reader in = Files.newBufferedReader(baselineFile)) {
+                baseline.load(in);
+            }
+        }
+        // The damaged building keeps its own baseline entries
+        String keyPrefix = closures ? "closures." : "";
+        boolean failed = false;
+        boolean missing = false;
+        boolean compared = false;
+
+        System.out.println("=== Latency of the routing engines ===");
+        System.out.printf("Latency per query, best of %d rounds on %d random pairs:%n", TIMED_ROUNDS, TIMED_PAIRS);
+        System.out.printf("  %-22s %12s %12s %9s%n", "engine", "ns", "baseline ns", "change");
+        Properties current = new Properties();
+        for (Model model : models) {
+            for (Engine engine : model.engines) {
+                String key = keyPrefix + engine.name + ".nanos";
+                current.setProperty(key, String.format(Locale.ROOT, "%.1f", engine.nanosPerQuery));
+                String recorded = record ? null : baseline.getProperty(key);
+                if (recorded == null) {
+                    missing = true;
+                    System.out.printf("  %-22s %12.1f %12s %9s%n", engine.name, engine.nanosPerQuery, "-", "");
+                    continue;
+                }
+                compared = true;
+                double before = Double.parseDouble(recorded);
+                double change = engine.nanosPerQuery / before - 1;
+                boolean regressed = change > threshold;
+                failed |= regressed;
+                System.out.printf("  %-22s %12.1f %12.1f %+8.0f%%%s%n", engine.name, engine.nanosPerQuery, before,
+                        change * 100, regressed ? "  REGRESSED" : "");
+            }
+        }
+
+        if (record || missing) {
+            // Only entries this run had no baseline for are added, unless recording over all of them
+            for (String key : current.stringPropertyNames()) {
+                if (record || baseline.getProperty(key) == null) baseline.setProperty(key, current.getProperty(key));
+            }
+            try (Writer out = Files.newBufferedWriter(baselineFile)) {
+                baseline.store(out, "DifferentialHarness baseline: mean ns per query on this machine");
+            }
+            System.out.println("Recorded baseline in " + baselineFile);
+        }
+        if (compared) {
+            System.out.printf("Compared with %s, threshold %+.0f%%%n", baselineFile, threshold * 100);
+        }
+        return failed;
+    }
+
+    private static Model roomPositionModel(BuildingLayout layout) {
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int n = kernel.roomCount();
+        String[] rooms = new String[n];
+        boolean[] open = new boolean[n];
+        BrooklynTechNavigation.Coordinate[] coords = new BrooklynTechNavigation.Coordinate[n];
+        for (int id = 0; id < n; id++) {
+            rooms[id] = kernel.room(id);
+            open[id] = !layout.isRoomClosed(rooms[id]);
+            coords[id] = layout.coordinateOf(rooms[id]);
+        }
+
+        TravelTimeMatrix matrix = layout.getTravelTimes();
+        RouteTable table = RouteTable.build(layout);
+        TransitNodeRouter transit = TransitNodeRouter.build(layout);
+        RouteCache cache = new RouteCache(1 << 16, RouteCache.EvictionPolicy.LRU);
+
+        List<Engine> engines = new ArrayList<>();
+        engines.add(new Engine("findBestStaircase", false) {
+            @Override
+            double time(int from, int to) {
+                int fromFloor = kernel.floor(from);
+                int toFloor = kernel.floor(to);
+                BrooklynTechNavigation.Coordinate stair = null;
+                if (fromFloor != toFloor) {
+                    stair = BrooklynTechNavigation.findBestStaircase(layout, coords[from], coords[to], fromFloor, toFloor);
+                    if (stair == null) return Double.POSITIVE_INFINITY;
+                }
+                return BrooklynTechNavigation.routeTime(layout, rooms[from], rooms[to], stair);
+            }
+        });
+        engines.add(new Engine("kernel", false) {
+            @Override
+            double time(int from, int to) {
+                int stair = kernel.bestStair(from, to);
+                return stair == RoutingKernel.NO_STAIRS ? Double.POSITIVE_INFINITY : kernel.travelTime(from, to, stair);
+            }
+        });
+        engines.add(new Engine("cached", true) {
+            @Override
+            double time(int from, int to) {
+                int key = RouteCache.key(kernel, from, to);
+                BrooklynTechNavigation.NavigationResult result = cache.get(layout.getVersion(), key);
+                if (result == null) {
+                    result = BrooklynTechNavigation.calculateRoute(layout, rooms[from], rooms[to]);
+                    cache.put(layout.getVersion(), key, result);
+                }
+                return result.getFrom() != null ? result.getEstimatedTime() : Double.POSITIVE_INFINITY;
+            }
+        });
+        engines.add(new Engine("precomputed", false) {
+            @Override
+            double time(int from, int to) {
+                BrooklynTechNavigation.NavigationResult result = table.lookup(from, to);
+                return result != null ? result.getEstimatedTime() : Double.POSITIVE_INFINITY;
+            }
+        });
+        engines.add(new Engine("matrix", true) {
+            @Override
+            double time(int from, int to) {
+                return matrix.minutes(from, to);
+            }
+        });
+        engines.add(new Engine("transit-node", false) {
+            @Override
+            double time(int from, int to) {
+                return transit.travelTime(from, to);
+            }
+        });
+        return new Model("Room-position", "minutes", "rooms", rooms, open, engines);
+    }
+
+    // Graph engines on the navigator, damaged like the given room-position layout when there is one
+    private static Model graphModel(BrooklynTechNavigator navigator, BuildingLayout damaged) {
+        CompactGraph built = navigator.graph();
+        int n = built.nodeCount();
+        String[] nodes = new String[n];
+        boolean[] open = new boolean[n];
+        for (int node = 0; node < n; node++) {
+            nodes[node] = built.id(node);
+            open[node] = true;
+        }
+        DynamicShortestPaths dynamic = navigator.dynamic();
+        if (damaged != null) {
+            // Every tree exists before the closures, so each one has to be repaired
+            dynamic.buildAllTrees();
+            close(navigator, damaged, open);
+        }
+        CompactGraph graph = navigator.currentGraph();
+
+        List<Engine> engines = new ArrayList<>();
+        for (CompactGraph.Algorithm algorithm : CompactGraph.SEARCHES) {
+            engines.add(new Engine("graph-" + algorithm.name().toLowerCase().replace('_', '-'), false) {
+                @Override
+                double time(int from, int to) {
+                    return seconds(graph.distance(from, to, algorithm));
+                }
+            });
+        }
+        engines.add(new Engine("graph-dynamic", true) {
+            @Override
+            double time(int from, int to) {
+                return seconds(dynamic.distance(from, to));
+            }
+        });
+        return new Model("Corridor graph", "seconds", "nodes", nodes, open, engines);
+    }
+
+    // Stairwell flights of the closed staircases, and every node of a blocked wing's corridor
+    private static void close(BrooklynTechNavigator navigator, BuildingLayout damaged, boolean[] open) {
+        CompactGraph graph = navigator.graph();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            String id = graph.id(node);
+            for (String stair : CLOSED_STAIRS) {
+                if (!id.startsWith(stair + "StairF")) continue;
+                for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                    String next = graph.id(graph.target(e));
+                    if (next.startsWith(stair + "StairF")) navigator.closeEdge(id, next);
+                }
+            }
+            String room = RoomMapping.toRoomId(id);
+            if (room != null && damaged.getRoomCoordinates().containsKey(room) && damaged.isRoomClosed(room)) {
+                navigator.closeNode(id);
+                open[node] = false;
+            }
+        }
+    }
+
+    private static double seconds(int distance) {
+        return distance == CompactGraph.UNREACHABLE ? Double.POSITIVE_INFINITY : distance;
+    }
+
+    // Checks a range of source rooms against every engine of the model
+    private static void check(Model model, int start, int end) {
+        int n = model.rooms.length;
+        for (int from = start; from < end; from++) {
+            if (!model.open[from]) continue;
+            double[] expected = new double[n];
+            Engine reference = model.engines.get(0);
+            for (int to = 0; to < n; to++) {
+                if (to == from || !model.open[to]) continue;
+                expected[to] = reference.time(from, to);
+                model.pairs.increment();
+            }
+            model.reference[from] = expected;
+
+            for (Engine engine : model.engines.subList(1, model.engines.size())) {
+                for (int pass = engine.remembers ? 2 : 1; pass > 0; pass--) {
+                    for (int to = 0; to < n; to++) {
+                        if (to == from || !model.open[to]) continue;
+                        double actual = engine.time(from, to);
+                        if (Double.compare(expected[to], actual) != 0) {
+                            mismatch(model, engine, from, to, expected[to], actual);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void mismatch(Model model, Engine engine, int from, int to, double expected, double actual) {
+        engine.mismatches.increment();
+        if (engine.examples.size() < EXAMPLES_PER_ENGINE) {
+            engine.examples.add(model.rooms[from] + " -> " + model.rooms[to] + ": expected " + expected
+                    + " " + model.unit + ", got " + actual);
+        }
+    }
+
+    // Rooms each model has that the other lacks, and mapped pairs only one model can route
+    static long crossModelReport(Model rooms, Model graph) {
+        Map<String, Integer> graphIndex = new HashMap<>();
+        for (int node = 0; node < graph.rooms.length; node++) graphIndex.put(graph.rooms[node], node);
+        Set<String> roomIds = new HashSet<>(Arrays.asList(rooms.rooms));
+
+        int[] mapped = new int[rooms.rooms.length];
+        List<String> roomOnly = new ArrayList<>();
+        int shared = 0;
+        for (int id = 0; id < rooms.rooms.length; id++) {
+            String node = RoomMapping.toGraphId(rooms.rooms[id]);
+            Integer index = node != null ? graphIndex.get(node) : null;
+            mapped[id] = index != null ? index : -1;
+            if (index != null) shared++; else roomOnly.add(rooms.rooms[id]);
+        }
+        int landings = 0;
+        List<String> graphOnly = new ArrayList<>();
+        for (String node : graph.rooms) {
+            if (RoomMapping.isStairLanding(node)) {
+                landings++;
+            } else if (!roomIds.contains(String.valueOf(RoomMapping.toRoomId(node)))) {
+                graphOnly.add(node);
+            }
+        }
+
+        System.out.println("Cross-model mapping (4N5 <-> N5F4):");
+        System.out.println("  rooms in both models:         " + shared);
+        System.out.println("  only in the room-position one: " + roomOnly.size() + " " + sample(roomOnly));
+        System.out.println("  only in the graph:             " + graphOnly.size() + " " + sample(graphOnly)
+                + ", plus " + landings + " staircase landings");
+
+        // Reachability must agree where both models have both rooms; the times themselves are not comparable
+        long oneModelOnly = 0;
+        Map<String, Integer> byRoom = new TreeMap<>();
+        List<Double> ratios = new ArrayList<>();
+        for (int from = 0; from < rooms.rooms.length; from++) {
+            if (mapped[from] < 0 || rooms.reference[from] == null) continue;
+            for (int to = 0; to < rooms.rooms.length; to++) {
+                if (to == from || mapped[to] < 0 || !rooms.open[to]) continue;
+                double minutes = rooms.reference[from][to];
+                double seconds = graph.reference[mapped[from]][mapped[to]];
+                if (Double.isInfinite(minutes) != Double.isInfinite(seconds)) {
+                    oneModelOnly++;
+                    byRoom.merge(rooms.rooms[from], 1, Integer::sum);
+                    byRoom.merge(rooms.rooms[to], 1, Integer::sum);
+                } else if (!Double.isInfinite(minutes) && minutes > 0) {
+                    ratios.add(seconds / 60 / minutes);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> worst = new ArrayList<>(byRoom.entrySet());
+        worst.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        StringBuilder rooms10 = new StringBuilder();
+        for (int i = 0; i < Math.min(10, worst.size()); i++) {
+            rooms10.append(i > 0 ? ", " : "").append(worst.get(i).getKey()).append(' ').append(worst.get(i).getValue());
+        }
+        System.out.println("  mapped pairs routable in one model only: " + oneModelOnly
+                + (worst.isEmpty() ? "" : " (most from " + rooms10 + ")"));
+        if (!ratios.isEmpty()) {
+            Collections.sort(ratios);
+            System.out.printf("  graph time / room-position time: p10 %.2f, median %.2f, p90 %.2f%n",
+                    ratios.get(ratios.size() / 10), ratios.get(ratios.size() / 2), ratios.get(ratios.size() * 9 / 10));
+        }
+        return oneModelOnly;
+    }
+
+    private static String sample(List<String> ids) {
+        if (ids.isEmpty()) return "";
+        return ids.size() <= 6 ? ids.toString() : ids.subList(0, 6) + "...";
+    }
+
+    // Mean latency of each engine on the same random pairs, best of several rounds after a warm-up round
+    private static void time(Model model, Random random) {
+        int[] from = new int[TIMED_PAIRS];
+        int[] to = new int[TIMED_PAIRS];
+        for (int q = 0; q < TIMED_PAIRS; q++) {
+            do {
+                from[q] = random.nextInt(model.rooms.length);
+                to[q] = random.nextInt(model.rooms.length);
+            } while (from[q] == to[q] || !model.open[from[q]] || !model.open[to[q]]);
+        }
+        double sink = 0;
+        for (Engine engine : model.engines) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int round = -1; round < TIMED_ROUNDS; round++) {
+                // Fast engines go round the sample until the clock has something to measure
+                long queries = 0;
+                long start = System.nanoTime();
+                long elapsed;
+                do {
+                    for (int q = 0; q < TIMED_PAIRS; q++) sink += engine.time(from[q], to[q]);
+                    queries += TIMED_PAIRS;
+                    elapsed = System.nanoTime() - start;
+                } while (elapsed < MIN_ROUND_NANOS);
+                if (round >= 0) best = Math.min(best, (double) elapsed / queries);
+            }
+            engine.nanosPerQuery = best;
+        }
+        if (sink == 0) System.out.println("(no routes timed)");
+    }
+}
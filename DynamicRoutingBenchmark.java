@@ -0,0 +1,147 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Compares incremental repair of all-sources shortest path trees against
+ * recomputing them from scratch on the full 9-floor BrooklynTechNavigator graph.
+ * Each scenario closes, reopens or reweights edges; after every update the
+ * repaired trees are checked against a full recompute on the same weights.
+ *
+ * Usage: java DynamicRoutingBenchmark [randomUpdates]
+ */
+public class DynamicRoutingBenchmark {
+
+    public static void main(String[] args) {
+        int randomUpdates = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+
+        BrooklynTechNavigator navigator = new BrooklynTechNavigator();
+        CompactGraph graph = navigator.graph();
+        int nodes = graph.nodeCount();
+
+        DynamicShortestPaths incremental = new DynamicShortestPaths(graph);
+        long start = System.nanoTime();
+        incremental.buildAllTrees();
+        long initialBuild = System.nanoTime() - start;
+
+        System.out.println("=== Incremental vs full shortest path recompute ===");
+        System.out.printf("Graph: %d nodes, %d arcs, %d source trees built in %.1f ms%n",
+                nodes, graph.edgeCount(), nodes, initialBuild / 1e6);
+        System.out.printf("%-34s %10s %12s %12s %10s%n", "Update", "touched", "incr (ms)", "full (ms)", "mismatch");
+
+        List<Consumer<DynamicShortestPaths>> applied = new ArrayList<>();
+        Random random = new Random(7);
+
+        run("Fire drill: close NEStairF7", closeNode(graph, "NEStairF7"), incremental, graph, applied);
+        run("Lock Library entrance W12F5", paths -> paths.closeEdge(node(graph, "W12F5"), node(graph, "LibraryF5")),
+                incremental, graph, applied);
+        run("Slow NWStair F1-F2 to 120 s", paths -> paths.setEdgeWeight(node(graph, "NWStairF1"), node(graph, "NWStairF2"), 120),
+                incremental, graph, applied);
+        run("Reopen Library entrance", paths -> paths.reopenEdge(node(graph, "W12F5"), node(graph, "LibraryF5")),
+                incremental, graph, applied);
+        run("Reopen NEStairF7", reopenNode(graph, "NEStairF7"), incremental, graph, applied);
+
+        long incrementalNanos = 0;
+        long fullNanos = 0;
+        long touched = 0;
+        int mismatches = 0;
+        for (int i = 0; i < randomUpdates; i++) {
+            int from = random.nextInt(nodes);
+            if (graph.edgeEnd(from) == graph.edgeStart(from)) continue;
+            int arc = graph.edgeStart(from) + random.nextInt(graph.edgeEnd(from) - graph.edgeStart(from));
+            int to = graph.target(arc);
+            int weight = random.nextBoolean() ? graph.weight(arc) * 4 : Math.max(1, graph.weight(arc) / 2);
+
+            long[] result = measure(paths -> paths.setEdgeWeight(from, to, weight), incremental, graph, applied);
+            incrementalNanos += result[0];
+            fullNanos += result[1];
+            touched += result[2];
+            mismatches += (int) result[3];
+        }
+        System.out.printf("%-34s %10.1f %12.3f %12.3f %10d%n", "Random reweight (avg of " + randomUpdates + ")",
+                (double) touched / randomUpdates, incrementalNanos / 1e6 / randomUpdates,
+                fullNanos / 1e6 / randomUpdates, mismatches);
+
+        // Query cost: tree lookup against a fresh point-to-point Dijkstra
+        int queries = 200_000;
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(nodes);
+            targets[i] = random.nextInt(nodes);
+        }
+        long sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sink += incremental.distance(sources[i], targets[i]);
+        }
+        long lookupNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            sink += graph.distance(sources[i], targets[i]);
+        }
+        long dijkstraNanos = System.nanoTime() - start;
+        System.out.printf("Query: tree lookup %.1f ns, Dijkstra %.1f ns (checksum %d)%n",
+                (double) lookupNanos / queries, (double) dijkstraNanos / queries, sink);
+    }
+
+    private static int node(CompactGraph graph, String id) {
+        int index = graph.indexOf(id);
+        if (index < 0) throw new IllegalArgumentException("Unknown node " + id);
+        return index;
+    }
+
+    private static Consumer<DynamicShortestPaths> closeNode(CompactGraph graph, String id) {
+        int node = node(graph, id);
+        return paths -> {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                paths.closeEdge(node, graph.target(e));
+            }
+        };
+    }
+
+    private static Consumer<DynamicShortestPaths> reopenNode(CompactGraph graph, String id) {
+        int node = node(graph, id);
+        return paths -> {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                paths.reopenEdge(node, graph.target(e));
+            }
+        };
+    }
+
+    private static void run(String name, Consumer<DynamicShortestPaths> update, DynamicShortestPaths incremental,
+                            CompactGraph graph, List<Consumer<DynamicShortestPaths>> applied) {
+        long[] result = measure(update, incremental, graph, applied);
+        System.out.printf("%-34s %10d %12.3f %12.3f %10d%n", name, result[2], result[0] / 1e6, result[1] / 1e6, result[3]);
+    }
+
+    // Returns {incremental nanos, full recompute nanos, nodes touched, mismatched distances}
+    private static long[] measure(Consumer<DynamicShortestPaths> update, DynamicShortestPaths incremental,
+                                  CompactGraph graph, List<Consumer<DynamicShortestPaths>> applied) {
+        long touchedBefore = incremental.totalTouched();
+        long start = System.nanoTime();
+        update.accept(incremental);
+        long incrementalNanos = System.nanoTime() - start;
+        long touched = incremental.totalTouched() - touchedBefore;
+        applied.add(update);
+
+        // Full recompute: replay every update on a tree-less copy, then run Dijkstra from every source
+        DynamicShortestPaths full = new DynamicShortestPaths(graph);
+        for (Consumer<DynamicShortestPaths> change : applied) {
+            change.accept(full);
+        }
+        start = System.nanoTime();
+        full.buildAllTrees();
+        long fullNanos = System.nanoTime() - start;
+
+        long mismatches = 0;
+        int nodes = graph.nodeCount();
+        for (int source = 0; source < nodes; source++) {
+            for (int target = 0; target < nodes; target++) {
+                if (incremental.distance(source, target) != full.distance(source, target)) {
+                    mismatches++;
+                }
+            }
+        }
+        return new long[] {incrementalNanos, fullNanos, touched, mismatches};
+    }
+}
@@ -0,0 +1,315 @@
+import java.util.*;
+
+/**
+ * Shortest path trees over a {@link CompactGraph} that stay correct while edge
+ * weights change, are removed, or come back.
+ *
+ * One tree is kept per source node, built by Dijkstra the first time that
+ * source is queried. When an edge gets slower or closes, only the subtree
+ * hanging below it in each tree is reset and re-attached from its unaffected
+ * neighbours; when an edge gets faster or reopens, the improvement is pushed
+ * outward from its endpoints. Every update records how many nodes it touched.
+ *
+ * Not thread-safe on its own; the public methods synchronize on this object.
+ */
+final class DynamicShortestPaths {
+
+    static final int UNREACHABLE = CompactGraph.UNREACHABLE;
+
+    // Weight of an arc that is currently closed
+    private static final int CLOSED = CompactGraph.UNREACHABLE;
+
+    private final CompactGraph graph;
+    private final int[] weights;
+    private final int[] arcSource;
+    private final int[] reverseArc;
+    private final Tree[] trees;
+    private final IndexedMinHeap heap;
+    private final int[] scratch;
+
+    private int lastTouched;
+    private long totalTouched;
+    private int updates;
+
+    private static final class Tree {
+        final int source;
+        final int[] distance;
+        final int[] parentArc;
+
+        Tree(int source, int nodeCount) {
+            this.source = source;
+            this.distance = new int[nodeCount];
+            this.parentArc = new int[nodeCount];
+        }
+    }
+
+    DynamicShortestPaths(CompactGraph graph) {
+        this.graph = graph;
+        int nodes = graph.nodeCount();
+        int arcs = graph.edgeCount();
+
+        weights = new int[arcs];
+        arcSource = new int[arcs];
+        for (int node = 0; node < nodes; node++) {
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                weights[e] = graph.weight(e);
+                arcSource[e] = node;
+            }
+        }
+        reverseArc = pairReverseArcs(graph, arcSource);
+
+        trees = new Tree[nodes];
+        heap = new IndexedMinHeap(nodes);
+        scratch = new int[nodes];
+    }
+
+    // Edges are stored once per direction; match each arc u->v with one v->u arc of the same weight
+    private static int[] pairReverseArcs(CompactGraph graph, int[] arcSource) {
+        int[] reverse = new int[graph.edgeCount()];
+        Arrays.fill(reverse, -1);
+        for (int e = 0; e < reverse.length; e++) {
+            if (reverse[e] >= 0) continue;
+            int to = graph.target(e);
+            for (int r = graph.edgeStart(to); r < graph.edgeEnd(to); r++) {
+                if (reverse[r] < 0 && r != e && graph.target(r) == arcSource[e]
+                        && graph.weight(r) == graph.weight(e)) {
+                    reverse[e] = r;
+                    reverse[r] = e;
+                    break;
+                }
+            }
+        }
+        return reverse;
+    }
+
+    synchronized int distance(int source, int target) {
+        return tree(source).distance[target];
+    }
+
+    // Node indices from source to target, or null if the target is unreachable
+    synchronized int[] path(int source, int target) {
+        Tree tree = tree(source);
+        if (tree.distance[target] == UNREACHABLE) {
+            return null;
+        }
+        int length = 1;
+        for (int node = target; node != source; node = arcSource[tree.parentArc[node]]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int node = target, i = length - 1; i >= 0; i--) {
+            path[i] = node;
+            if (i > 0) node = arcSource[tree.parentArc[node]];
+        }
+        return path;
+    }
+
+    // Builds trees for every node up front so later queries never run a full search
+    synchronized void buildAllTrees() {
+        for (int source = 0; source < trees.length; source++) {
+            tree(source);
+        }
+    }
+
+    synchronized int treeCount() {
+        int count = 0;
+        for (Tree tree : trees) {
+            if (tree != null) count++;
+        }
+        return count;
+    }
+
+    // Copy of the current arc weights, indexed like CompactGraph.weight; closed arcs are UNREACHABLE
+    synchronized int[] weights() {
+        return weights.clone();
+    }
+
+    // Current weight of the cheapest open edge between two nodes, or -1 if none is open
+    synchronized int weightBetween(int from, int to) {
+        int best = -1;
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.target(e) == to && weights[e] != CLOSED && (best < 0 || weights[e] < best)) {
+                best = weights[e];
+            }
+        }
+        return best;
+    }
+
+    /** Sets the travel time of every edge between a and b; returns the nodes touched. */
+    synchronized int setEdgeWeight(int a, int b, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Edge weight must not be negative: " + weight);
+        }
+        return update(a, b, weight, false);
+    }
+
+    synchronized int closeEdge(int a, int b) {
+        return update(a, b, CLOSED, false);
+    }
+
+    // Restores the edge to the weight it was built with
+    synchronized int reopenEdge(int a, int b) {
+        return update(a, b, 0, true);
+    }
+
+    synchronized int lastUpdateTouched() { return lastTouched; }
+
+    synchronized long totalTouched() { return totalTouched; }
+
+    synchronized int updateCount() { return updates; }
+
+    private int update(int a, int b, int weight, boolean restoreOriginal) {
+        List<Integer> increased = new ArrayList<>();
+        List<Integer> decreased = new ArrayList<>();
+        collectArcs(a, b, weight, restoreOriginal, increased, decreased);
+        collectArcs(b, a, weight, restoreOriginal, increased, decreased);
+        if (increased.isEmpty() && decreased.isEmpty()) {
+            throw new IllegalArgumentException("No edge between " + graph.id(a) + " and " + graph.id(b));
+        }
+
+        int touched = 0;
+
+        // Slower or closed arcs first, with the faster ones still at their old weight
+        for (int e : increased) {
+            weights[e] = newWeight(e, weight, restoreOriginal);
+        }
+        for (Tree tree : trees) {
+            if (tree == null) continue;
+            for (int e : increased) {
+                if (tree.parentArc[graph.target(e)] == e) {
+                    touched += repairSubtree(tree, graph.target(e));
+                }
+            }
+        }
+
+        // Then faster or reopened arcs can only shorten paths through them
+        for (int e : decreased) {
+            weights[e] = newWeight(e, weight, restoreOriginal);
+        }
+        for (Tree tree : trees) {
+            if (tree == null) continue;
+            for (int e : decreased) {
+                touched += propagateImprovement(tree, e);
+            }
+        }
+
+        lastTouched = touched;
+        totalTouched += touched;
+        updates++;
+        return touched;
+    }
+
+    private void collectArcs(int from, int to, int weight, boolean restoreOriginal,
+                             List<Integer> increased, List<Integer> decreased) {
+        for (int e = graph.edgeStart(from); e < graph.edgeEnd(from); e++) {
+            if (graph.target(e) != to) continue;
+            int next = newWeight(e, weight, restoreOriginal);
+            if (next > weights[e]) {
+                increased.add(e);
+            } else {
+                decreased.add(e);
+            }
+        }
+    }
+
+    private int newWeight(int arc, int weight, boolean restoreOriginal) {
+        return restoreOriginal ? graph.weight(arc) : weight;
+    }
+
+    private Tree tree(int source) {
+        Tree tree = trees[source];
+        if (tree == null) {
+            tree = new Tree(source, graph.nodeCount());
+            Arrays.fill(tree.distance, UNREACHABLE);
+            Arrays.fill(tree.parentArc, -1);
+            tree.distance[source] = 0;
+            heap.insertOrDecrease(source, 0);
+            settle(tree);
+            trees[source] = tree;
+        }
+        return tree;
+    }
+
+    // Dijkstra over whatever is queued, relaxing only arcs that shorten a known distance
+    private int settle(Tree tree) {
+        int settled = 0;
+        while (!heap.isEmpty()) {
+            int node = heap.pollMin();
+            settled++;
+            int dist = tree.distance[node];
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int weight = weights[e];
+                if (weight == CLOSED) continue;
+                int next = graph.target(e);
+                int candidate = dist + weight;
+                if (candidate < tree.distance[next]) {
+                    tree.distance[next] = candidate;
+                    tree.parentArc[next] = e;
+                    heap.insertOrDecrease(next, candidate);
+                }
+            }
+        }
+        return settled;
+    }
+
+    // Reset the subtree below root, re-attach it from unaffected neighbours, and rerun Dijkstra inside it
+    private int repairSubtree(Tree tree, int root) {
+        int count = 0;
+        scratch[count++] = root;
+        for (int i = 0; i < count; i++) {
+            int node = scratch[i];
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int child = graph.target(e);
+                if (tree.parentArc[child] == e) {
+                    scratch[count++] = child;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            int node = scratch[i];
+            tree.distance[node] = UNREACHABLE;
+            tree.parentArc[node] = -1;
+        }
+
+        // Best entry into each affected node from its neighbours; ones still reset are skipped
+        for (int i = 0; i < count; i++) {
+            int node = scratch[i];
+            for (int e = graph.edgeStart(node); e < graph.edgeEnd(node); e++) {
+                int in = reverseArc[e];
+                if (in < 0 || weights[in] == CLOSED) continue;
+                int neighbour = graph.target(e);
+                int dist = tree.distance[neighbour];
+                if (dist == UNREACHABLE) continue;
+                int candidate = dist + weights[in];
+                if (candidate < tree.distance[node]) {
+                    tree.distance[node] = candidate;
+                    tree.parentArc[node] = in;
+                }
+            }
+            if (tree.distance[node] != UNREACHABLE) {
+                heap.insertOrDecrease(node, tree.distance[node]);
+            }
+        }
+
+        settle(tree);
+        return count;
+    }
+
+    private int propagateImprovement(Tree tree, int arc) {
+        int weight = weights[arc];
+        int from = arcSource[arc];
+        int to = graph.target(arc);
+        if (weight == CLOSED || tree.distance[from] == UNREACHABLE) {
+            return 0;
+        }
+        int candidate = tree.distance[from] + weight;
+        if (candidate >= tree.distance[to]) {
+            return 0;
+        }
+        tree.distance[to] = candidate;
+        tree.parentArc[to] = arc;
+        heap.insertOrDecrease(to, candidate);
+        return settle(tree);
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * Reports how many nodes Dijkstra, A* and bidirectional search settle on the
+ * corridor graph, over every pair of nodes grouped into one floor, adjacent
+ * floors and farther apart, and how long a query takes. That the three agree
+ * on every pair is checked by GraphSearchTest.
+ *
+ * Usage: java GraphSearchBenchmark [timed queries]
+ */
+public class GraphSearchBenchmark {
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        BrooklynTechNavigator navigator = new BrooklynTechNavigator();
+        CompactGraph graph = navigator.graph();
+        int n = graph.nodeCount();
+
+        System.out.println("=== Goal-directed search on the corridor graph ===");
+        System.out.println("Nodes: " + n + ", arcs: " + graph.edgeCount());
+
+        CompactGraph.Algorithm[] algorithms = CompactGraph.SEARCHES;
+        long[][] settled = new long[algorithms.length][3];
+        long[] pairs = new long[3];
+        for (int source = 0; source < n; source++) {
+            for (int target = 0; target < n; target++) {
+                int kind = Math.min(2, Math.abs(graph.floor(source) - graph.floor(target)));
+                pairs[kind]++;
+                for (CompactGraph.Algorithm algorithm : algorithms) {
+                    graph.shortestPath(source, target, algorithm);
+                    settled[algorithm.ordinal()][kind] += graph.lastSettled(algorithm);
+                }
+            }
+        }
+
+        String[] kinds = {"same floor", "adjacent floors", "2+ floors apart"};
+        System.out.println("Mean nodes settled per query:");
+        System.out.printf("  %-18s %10s %10s %14s%n", "", "Dijkstra", "A*", "bidirectional");
+        for (int kind = 0; kind < 3; kind++) {
+            System.out.printf("  %-18s %10.1f %10.1f %14.1f%n", kinds[kind],
+                    (double) settled[0][kind] / pairs[kind], (double) settled[1][kind] / pairs[kind],
+                    (double) settled[2][kind] / pairs[kind]);
+        }
+
+        // Random pairs weighted like real traffic: mostly one floor or the next
+        Random random = new Random(42);
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int q = 0; q < queries; q++) {
+            sources[q] = random.nextInt(n);
+            int target;
+            do {
+                target = random.nextInt(n);
+            } while (random.nextInt(4) != 0
+                    && Math.abs(graph.floor(sources[q]) - graph.floor(target)) > 1);
+            targets[q] = target;
+        }
+        for (int round = 0; round < 3; round++) {
+            if (round == 2) System.out.println("Latency per query, mostly same or adjacent floor (warm JIT):");
+            for (CompactGraph.Algorithm algorithm : algorithms) {
+                long sink = 0;
+                long start = System.nanoTime();
+                for (int q = 0; q < queries; q++) {
+                    sink += graph.distance(sources[q], targets[q], algorithm);
+                }
+                long elapsed = System.nanoTime() - start;
+                if (round == 2) {
+                    System.out.printf("  %-14s %8.2f us (checksum %d)%n", algorithm, elapsed / 1e3 / queries, sink);
+                }
+            }
+        }
+        System.out.println("Since startup, mean settled per search: Dijkstra "
+                + String.format("%.1f", graph.settledPerSearch(CompactGraph.Algorithm.DIJKSTRA))
+                + ", A* " + String.format("%.1f", graph.settledPerSearch(CompactGraph.Algorithm.A_STAR))
+                + ", bidirectional " + String.format("%.1f", graph.settledPerSearch(CompactGraph.Algorithm.BIDIRECTIONAL)));
+    }
+}
@@ -0,0 +1,150 @@
+import java.util.*;
+
+/**
+ * Checks and times the itinerary planner on random sets of rooms: Held-Karp
+ * against brute force on small tours, the heuristic's gap to the exact tour,
+ * and planning latency for fixed-order days and free-order tours of growing
+ * size, both on a fresh travel-time matrix and on a warm one.
+ *
+ * Usage: java ItineraryBenchmark [tours per size]
+ */
+public class ItineraryBenchmark {
+
+    public static void main(String[] args) {
+        int tours = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        Random random = new Random(42);
+        List<String> rooms = new ArrayList<>(BrooklynTechNavigation.currentLayout().getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+
+        System.out.println("=== Itinerary planner ===");
+
+        // Held-Karp must match trying every order
+        int mismatches = 0;
+        for (int t = 0; t < tours; t++) {
+            double[][] times = timesFor(sample(rooms, 2 + random.nextInt(7), random));
+            if (Math.abs(tourCost(times, ItineraryPlanner.heldKarp(times)) - bruteForce(times)) > 1e-9) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Held-Karp vs brute force on %d tours of 2-8 stops: %d mismatches%n", tours, mismatches);
+
+        // How far the heuristic lands from the optimum where the optimum is known
+        for (int stops : new int[] {8, 12, 15}) {
+            double sumGap = 0;
+            double maxGap = 0;
+            for (int t = 0; t < tours; t++) {
+                double[][] times = timesFor(sample(rooms, stops + 1, random));
+                double exact = tourCost(times, ItineraryPlanner.heldKarp(times));
+                double heuristic = tourCost(times,
+                        ItineraryPlanner.improve(times, ItineraryPlanner.nearestNeighbour(times)));
+                double gap = (heuristic - exact) / exact * 100;
+                sumGap += gap;
+                maxGap = Math.max(maxGap, gap);
+            }
+            System.out.printf("Heuristic vs exact, %2d stops: mean gap %.2f%%, worst %.2f%%%n",
+                    stops, sumGap / tours, maxGap);
+        }
+
+        // The first plan on a new snapshot fills matrix rows; later plans reuse them
+        BrooklynTechNavigation.publishLayout(BrooklynTechNavigation.currentLayout().withStairReopened("NW"));
+        List<String> first = sample(rooms, 16, random);
+        long start = System.nanoTime();
+        ItineraryPlanner.planTour(first.get(0), first.subList(1, 16), true);
+        System.out.printf("First 15-stop tour on a fresh matrix: %.2f ms%n", (System.nanoTime() - start) / 1e6);
+
+        for (int round = 0; round < 3; round++) {
+            timeTours(rooms, random, 15, tours, false);
+        }
+        System.out.println("Latency per plan (warm JIT):");
+        timeDays(rooms, random, tours);
+        for (int stops : new int[] {5, 10, 12, 15, 20, 40, 80}) {
+            timeTours(rooms, random, stops, tours, true);
+        }
+
+        System.out.println();
+        System.out.print(ItineraryPlanner.planTour("4N5", List.of("Library", "2E12", "8S3", "1W20", "6C4"), true)
+                .getSummary());
+    }
+
+    private static void timeDays(List<String> rooms, Random random, int tours) {
+        long[] nanos = new long[tours];
+        for (int t = 0; t < tours; t++) {
+            List<String> day = sample(rooms, 10, random);
+            long start = System.nanoTime();
+            ItineraryPlanner.planInOrder(day);
+            nanos[t] = System.nanoTime() - start;
+        }
+        report("10-period day, fixed order", nanos);
+    }
+
+    private static void timeTours(List<String> rooms, Random random, int stops, int tours, boolean print) {
+        long[] nanos = new long[tours];
+        boolean exact = true;
+        for (int t = 0; t < tours; t++) {
+            List<String> tour = sample(rooms, stops + 1, random);
+            long start = System.nanoTime();
+            ItineraryPlanner.Itinerary itinerary = ItineraryPlanner.planTour(tour.get(0), tour.subList(1, tour.size()), true);
+            nanos[t] = System.nanoTime() - start;
+            exact = itinerary.isExact();
+        }
+        if (print) {
+            report(String.format("%2d-stop tour, %s", stops, exact ? "Held-Karp" : "heuristic"), nanos);
+        }
+    }
+
+    private static void report(String name, long[] nanos) {
+        Arrays.sort(nanos);
+        double mean = Arrays.stream(nanos).average().orElse(0);
+        System.out.printf("  %-28s mean %8.3f ms, p99 %8.3f ms, max %8.3f ms%n", name, mean / 1e6,
+                nanos[(int) Math.ceil(nanos.length * 0.99) - 1] / 1e6, nanos[nanos.length - 1] / 1e6);
+    }
+
+    // Distinct random rooms; every floor has corner staircases, so all pairs are reachable
+    private static List<String> sample(List<String> rooms, int count, Random random) {
+        List<String> shuffled = new ArrayList<>(rooms);
+        Collections.shuffle(shuffled, random);
+        return new ArrayList<>(shuffled.subList(0, count));
+    }
+
+    private static double[][] timesFor(List<String> stops) {
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int[] ids = new int[stops.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = kernel.idOf(stops.get(i));
+        return layout.getTravelTimes().between(ids);
+    }
+
+    private static double tourCost(double[][] times, int[] order) {
+        double total = 0;
+        for (int i = 0; i < order.length; i++) {
+            total += times[order[i]][order[(i + 1) % order.length]];
+        }
+        return total;
+    }
+
+    // Every order of nodes 1..n-1 after node 0
+    private static double bruteForce(double[][] times) {
+        int[] order = new int[times.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        return permute(times, order, 1);
+    }
+
+    private static double permute(double[][] times, int[] order, int position) {
+        if (position == order.length) {
+            return tourCost(times, order);
+        }
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = position; i < order.length; i++) {
+            swap(order, position, i);
+            best = Math.min(best, permute(times, order, position + 1));
+            swap(order, position, i);
+        }
+        return best;
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+}
@@ -0,0 +1,346 @@
+import java.util.*;
+
+/**
+ * Multi-stop routes: a student's whole day in schedule order, or a set of
+ * rooms to visit in the fastest order for hall duty, custodians and deliveries.
+ *
+ * Leg times come from the layout's memoized {@link TravelTimeMatrix}, so
+ * planning never renders directions; those are built per leg on request.
+ * Free-order tours with up to {@value #MAX_EXACT_STOPS} stops besides the
+ * start are solved exactly with Held-Karp dynamic programming. Larger ones
+ * start from a nearest-neighbour tour that is improved with 2-opt and stop
+ * relocation until neither finds a shorter tour.
+ */
+public final class ItineraryPlanner {
+
+    // Held-Karp keeps 2^n * n partial tours; 15 stops take a few MB and a few ms
+    static final int MAX_EXACT_STOPS = 15;
+
+    // Improvements smaller than this are rounding noise, not shorter tours
+    private static final double EPSILON = 1e-9;
+
+    private ItineraryPlanner() {}
+
+    // An ordered route through several rooms on one layout snapshot
+    public static final class Itinerary {
+        private final BuildingLayout layout;
+        private final List<String> stops;
+        private final double[] legMinutes;
+        private final double totalMinutes;
+        private final boolean exact;
+
+        Itinerary(BuildingLayout layout, List<String> stops, double[] legMinutes, boolean exact) {
+            this.layout = layout;
+            this.stops = stops;
+            this.legMinutes = legMinutes;
+            double total = 0;
+            for (double minutes : legMinutes) total += minutes;
+            this.totalMinutes = total;
+            this.exact = exact;
+        }
+
+        // Normalized room IDs in visiting order, starting with the start
+        public List<String> getStops() { return stops; }
+
+        public int getLegCount() { return legMinutes.length; }
+
+        public double getLegMinutes(int leg) { return legMinutes[leg]; }
+
+        public double getTotalMinutes() { return totalMinutes; }
+
+        // False when a heuristic chose the order, so a shorter one may exist
+        public boolean isExact() { return exact; }
+
+        // Directions for one leg, routed on the snapshot the itinerary was planned on
+        public BrooklynTechNavigation.NavigationResult getLeg(int leg) {
+            String from = stops.get(leg);
+            String to = stops.get(leg + 1);
+            if (from.equals(to)) {
+                return new BrooklynTechNavigation.NavigationResult(
+                        BrooklynTechNavigation.NavigationResult.Status.SAME_ROOM, "You are already at your destination!", 0);
+            }
+            return BrooklynTechNavigation.calculateRoute(layout, from, to);
+        }
+
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder();
+            RoomIndex index = layout.getRoomIndex();
+            summary.append("Itinerary: ").append(stops.size()).append(" stops, ")
+                   .append(String.format("%.1f", totalMinutes)).append(" minutes");
+            if (!exact) summary.append(" (heuristic order)");
+            summary.append("\n");
+            summary.append("Start: ").append(index.displayName(stops.get(0))).append("\n");
+            for (int leg = 0; leg < legMinutes.length; leg++) {
+                summary.append(leg + 1).append(". ").append(index.displayName(stops.get(leg + 1)))
+                       .append(String.format(" (%.1f min)", legMinutes[leg])).append("\n");
+            }
+            return summary.toString();
+        }
+    }
+
+    /**
+     * Visits the stops in the given order, e.g. a student's classrooms period
+     * by period. A room listed twice in a row is a zero-minute leg.
+     */
+    public static Itinerary planInOrder(List<String> stops) {
+        if (stops.size() < 2) {
+            throw new IllegalArgumentException("An itinerary needs at least 2 stops");
+        }
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        String[] rooms = resolve(layout, stops);
+        int[] ids = kernelIds(layout, rooms);
+        TravelTimeMatrix matrix = layout.getTravelTimes();
+
+        double[] legs = new double[rooms.length - 1];
+        for (int leg = 0; leg < legs.length; leg++) {
+            legs[leg] = matrix.minutes(ids[leg], ids[leg + 1]);
+            requireReachable(legs[leg], rooms[leg], rooms[leg + 1]);
+        }
+        return new Itinerary(layout, List.of(rooms), legs, true);
+    }
+
+    /**
+     * Visits every stop once in the fastest order found, starting from
+     * {@code start} and, if {@code returnToStart}, ending there too. Repeated
+     * stops and stops equal to the start are visited once.
+     */
+    public static Itinerary planTour(String start, Collection<String> stops, boolean returnToStart) {
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        List<String> all = new ArrayList<>(stops.size() + 1);
+        all.add(start);
+        all.addAll(stops);
+
+        // Node 0 is the start; the rest are the distinct stops
+        LinkedHashSet<String> distinct = new LinkedHashSet<>(Arrays.asList(resolve(layout, all)));
+        String[] rooms = distinct.toArray(new String[0]);
+        if (rooms.length < 2) {
+            throw new IllegalArgumentException("A tour needs at least 1 stop besides the start");
+        }
+        double[][] times = layout.getTravelTimes().between(kernelIds(layout, rooms));
+
+        // An open tour ends anywhere, which is a closed tour whose last leg home is free
+        if (!returnToStart) {
+            for (int i = 1; i < rooms.length; i++) times[i][0] = 0;
+        }
+
+        int free = rooms.length - 1;
+        boolean exact = free <= MAX_EXACT_STOPS;
+        int[] order = exact ? heldKarp(times) : improve(times, nearestNeighbour(times));
+
+        int visits = returnToStart ? order.length + 1 : order.length;
+        String[] visited = new String[visits];
+        double[] legs = new double[visits - 1];
+        for (int i = 0; i < visits; i++) {
+            visited[i] = rooms[order[i % order.length]];
+        }
+        for (int leg = 0; leg < legs.length; leg++) {
+            legs[leg] = times[order[leg]][order[(leg + 1) % order.length]];
+            requireReachable(legs[leg], visited[leg], visited[leg + 1]);
+        }
+        return new Itinerary(layout, List.of(visited), legs, exact);
+    }
+
+    private static String[] resolve(BuildingLayout layout, List<String> inputs) {
+        String[] rooms = new String[inputs.size()];
+        for (int i = 0; i < rooms.length; i++) {
+            String input = inputs.get(i);
+            String room = layout.getRoomIndex().resolve(input);
+            if (room == null) {
+                String message = "Stop '" + input + "' not found.";
+                List<String> suggestions = layout.getRoomIndex().suggest(input);
+                if (!suggestions.isEmpty()) {
+                    message += " Did you mean: " + String.join(", ", suggestions) + "?";
+                }
+                throw new IllegalArgumentException(message);
+            }
+            if (layout.isRoomClosed(room)) {
+                throw new IllegalArgumentException(layout.getRoomIndex().displayName(room) + " is currently closed.");
+            }
+            rooms[i] = room;
+        }
+        return rooms;
+    }
+
+    private static int[] kernelIds(BuildingLayout layout, String[] rooms) {
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int[] ids = new int[rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            ids[i] = kernel.idOf(rooms[i]);
+        }
+        return ids;
+    }
+
+    private static void requireReachable(double minutes, String from, String to) {
+        if (minutes == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("No open staircase between " + from + " and " + to + ".");
+        }
+    }
+
+    /**
+     * Shortest closed tour from node 0 through every node, as the node order
+     * starting with 0. best[mask][j] is the cheapest way to leave 0, visit the
+     * free nodes in mask (bit j-1 for node j) and end at j.
+     */
+    static int[] heldKarp(double[][] times) {
+        int free = times.length - 1;
+        int masks = 1 << free;
+        double[] best = new double[masks * free];
+        byte[] previous = new byte[masks * free];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int j = 0; j < free; j++) {
+            best[(1 << j) * free + j] = times[0][j + 1];
+            previous[(1 << j) * free + j] = -1;
+        }
+
+        for (int mask = 1; mask < masks; mask++) {
+            for (int j = 0; j < free; j++) {
+                if ((mask & (1 << j)) == 0) continue;
+                double cost = best[mask * free + j];
+                if (cost == Double.POSITIVE_INFINITY) continue;
+                double[] from = times[j + 1];
+                for (int k = 0; k < free; k++) {
+                    if ((mask & (1 << k)) != 0) continue;
+                    int slot = (mask | (1 << k)) * free + k;
+                    double next = cost + from[k + 1];
+                    if (next < best[slot]) {
+                        best[slot] = next;
+                        previous[slot] = (byte) j;
+                    }
+                }
+            }
+        }
+
+        int full = masks - 1;
+        int last = 0;
+        double shortest = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < free; j++) {
+            double total = best[full * free + j] + times[j + 1][0];
+            if (total < shortest) {
+                shortest = total;
+                last = j;
+            }
+        }
+
+        // Walk the choices back from the last stop
+        int[] order = new int[times.length];
+        int mask = full;
+        for (int position = free; position >= 1; position--) {
+            order[position] = last + 1;
+            int before = previous[mask * free + last];
+            mask &= ~(1 << last);
+            last = before;
+        }
+        return order;
+    }
+
+    // Greedy tour from node 0, always walking to the closest unvisited node
+    static int[] nearestNeighbour(double[][] times) {
+        int n = times.length;
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int position = 1; position < n; position++) {
+            int current = order[position - 1];
+            int closest = -1;
+            for (int k = 1; k < n; k++) {
+                if (!visited[k] && (closest < 0 || times[current][k] < times[current][closest])) {
+                    closest = k;
+                }
+            }
+            order[position] = closest;
+            visited[closest] = true;
+        }
+        return order;
+    }
+
+    /**
+     * Improves a closed tour that starts at node 0 with 2-opt segment reversals
+     * and single stop relocations until neither shortens it. Times between
+     * rooms are symmetric (a route and its reverse use the same staircase), so a
+     * reversed segment costs the same inside; only times back to node 0 may
+     * differ, and those are never reversed.
+     */
+    static int[] improve(double[][] times, int[] order) {
+        int n = order.length;
+        int[] tour = order.clone();
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+
+            // Reverse tour[i..j]; node 0 stays first and the tour wraps back to it
+            for (int i = 1; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    int a = tour[i - 1];
+                    int b = tour[i];
+                    int c = tour[j];
+                    int d = tour[(j + 1) % n];
+                    double delta = times[a][c] + times[b][d] - times[a][b] - times[c][d];
+                    if (delta < -EPSILON) {
+                        reverse(tour, i, j);
+                        improved = true;
+                    }
+                }
+            }
+
+            // Move tour[i] to between tour[j] and the node after it
+            for (int i = 1; i < n; i++) {
+                int node = tour[i];
+                int before = tour[i - 1];
+                int after = tour[(i + 1) % n];
+                double removed = times[before][node] + times[node][after] - times[before][after];
+                for (int j = 0; j < n; j++) {
+                    if (j == i || j == i - 1) continue;
+                    int left = tour[j];
+                    int right = tour[(j + 1) % n];
+                    double added = times[left][node] + times[node][right] - times[left][right];
+                    if (added < removed - EPSILON) {
+                        relocate(tour, i, j);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return tour;
+    }
+
+    private static void reverse(int[] tour, int i, int j) {
+        while (i < j) {
+            int swap = tour[i];
+            tour[i++] = tour[j];
+            tour[j--] = swap;
+        }
+    }
+
+    // Removes tour[from] and inserts it after the node now at tour[after] (indices before removal)
+    private static void relocate(int[] tour, int from, int after) {
+        int node = tour[from];
+        if (from < after) {
+            System.arraycopy(tour, from + 1, tour, from, after - from);
+            tour[after] = node;
+        } else {
+            System.arraycopy(tour, after + 1, tour, after + 2, from - after - 1);
+            tour[after + 1] = node;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java ItineraryPlanner [--in-order] [--return] <start> <stop> [stop...]");
+            System.exit(2);
+        }
+        boolean inOrder = false;
+        boolean returnToStart = false;
+        List<String> rooms = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--in-order")) inOrder = true;
+            else if (arg.equals("--return")) returnToStart = true;
+            else rooms.add(arg);
+        }
+
+        Itinerary itinerary = inOrder
+                ? planInOrder(rooms)
+                : planTour(rooms.get(0), rooms.subList(1, rooms.size()), returnToStart);
+        System.out.print(itinerary.getSummary());
+    }
+}
@@ -0,0 +1,798 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A building layout kept as data instead of code.
+ *
+ * Layouts are written by hand as text (name.layout) and compiled into a
+ * compact binary form (name.layout.bin) that is memory-mapped at startup.
+ * Opening a binary layout only reads its header; the rooms of a floor are
+ * decoded the first time that floor is asked for. Both navigation engines
+ * still ask for every floor as they build, because the room index, the
+ * routing kernel and the corridor graph each span the whole building; what
+ * the binary form saves them is parsing the text. Text layouts are compiled
+ * in memory to the same binary form, so both are read by the same code.
+ *
+ * Text format, one directive per line; '#' starts a comment:
+ *
+ *   building NAME floors LIST              first directive; LIST is like 0-8 or 1-6,8
+ *   for floor LIST ... end                 the enclosed lines run once per floor, {f} is the floor
+ *   room ID [at X,Y [step DX,DY]] [label "TEXT"] [tags TAG,TAG]
+ *   area ID at X,Y name "NAME" [tags TAG,TAG]   a room that can also be found by name
+ *   edge ID ID WEIGHT                      a two-way connection
+ *   chain WEIGHT ID ID ...                 edges between each consecutive pair
+ *   stairwell WEIGHT ID                    links an ID with {f} on consecutive floors that have it,
+ *                                          WEIGHT per floor climbed
+ *
+ * A line inside a for block may end with "only LIST" or "except LIST". An ID
+ * may hold one range, e.g. N{1-9}F{f}, and then stands for one room per
+ * number: "at" places the first of them, "step" is the offset to the next, and
+ * {n} in a label is the room number. Tags put a room in categories such as
+ * classroom or gym, for facility searches. Rooms are placed on the floor of their
+ * for block. Edges are resolved after every room is known, in file order, and
+ * must name existing rooms.
+ *
+ * Usage: java LayoutFile compile <in.layout> [out.layout.bin]
+ *        java LayoutFile info <file>
+ */
+final class LayoutFile {
+
+    static final String TEXT_SUFFIX = ".layout";
+    static final String BINARY_SUFFIX = ".layout.bin";
+
+    // Directory searched for layouts by name before the classpath
+    static final String LAYOUT_DIR_PROPERTY = "navigation.layouts";
+    private static final String DEFAULT_LAYOUT_DIR = "layouts";
+
+    // Rooms without a position, e.g. nodes of the graph model
+    static final int NO_POSITION = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x42544C59; // "BTLY"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 40;
+    private static final int FLOOR_BYTES = 8;    // first record, record count
+    private static final int ROOM_BYTES = 24;    // order, id, label, tags, x, y
+    private static final int AREA_BYTES = 8;     // name, room order
+    private static final int EDGE_BYTES = 12;    // from order, to order, weight
+    private static final int NO_STRING = -1;
+
+    // One room as declared in the layout
+    static final class Room {
+        final String id;
+        final String label;
+        final List<String> tags;
+        final int floor;
+        final int x;
+        final int y;
+
+        // Position in declaration order, which the graph engine keeps as its node order
+        final int order;
+
+        Room(String id, String label, List<String> tags, int floor, int x, int y, int order) {
+            this.id = id;
+            this.label = label;
+            this.tags = tags;
+            this.floor = floor;
+            this.x = x;
+            this.y = y;
+            this.order = order;
+        }
+
+        boolean hasPosition() { return x != NO_POSITION; }
+    }
+
+    static final class Edge {
+        final String from;
+        final String to;
+        final int weight;
+
+        Edge(String from, String to, int weight) {
+            this.from = from;
+            this.to = to;
+            this.weight = weight;
+        }
+    }
+
+    private final ByteBuffer data;
+    private final String name;
+    private final int firstFloor;
+    private final int floorCount;
+    private final int roomCount;
+    private final int areaCount;
+    private final int edgeCount;
+    private final int roomsAt;
+    private final int areasAt;
+    private final int edgesAt;
+    private final int stringsAt;
+
+    // Decoded on first use, per floor
+    private final AtomicReferenceArray<List<Room>> floors;
+
+    private LayoutFile(ByteBuffer data) {
+        this.data = data;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled layout");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported layout version " + data.getInt(4));
+        }
+        firstFloor = data.getInt(12);
+        floorCount = data.getInt(16);
+        roomCount = data.getInt(20);
+        areaCount = data.getInt(24);
+        edgeCount = data.getInt(28);
+        stringsAt = data.getInt(32);
+        roomsAt = HEADER_BYTES + floorCount * FLOOR_BYTES;
+        areasAt = roomsAt + roomCount * ROOM_BYTES;
+        edgesAt = areasAt + areaCount * AREA_BYTES;
+        if (floorCount < 0 || roomCount < 0 || areaCount < 0 || edgeCount < 0
+                || (long) edgesAt + (long) edgeCount * EDGE_BYTES > stringsAt || stringsAt > data.limit()) {
+            throw new IllegalArgumentException("Corrupt layout header");
+        }
+        name = string(data.getInt(8));
+        floors = new AtomicReferenceArray<>(floorCount);
+    }
+
+    // Reads a compiled layout from memory
+    static LayoutFile read(ByteBuffer data) {
+        return new LayoutFile(data.asReadOnlyBuffer());
+    }
+
+    // Maps a compiled layout file; the mapping stays valid after the channel is closed
+    static LayoutFile map(Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            return new LayoutFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    static LayoutFile parse(Path text) throws IOException {
+        return read(ByteBuffer.wrap(compile(text.toString(), Files.readString(text))));
+    }
+
+    // Opens a text or compiled layout by its file name
+    static LayoutFile open(Path path) throws IOException {
+        return path.toString().endsWith(BINARY_SUFFIX) ? map(path) : parse(path);
+    }
+
+    /**
+     * Loads a layout by name from the layout directory (the navigation.layouts
+     * system property, "layouts" by default), then from the classpath. A
+     * compiled file is preferred unless its text source has been edited since.
+     */
+    static LayoutFile load(String name) {
+        Path dir = Path.of(System.getProperty(LAYOUT_DIR_PROPERTY, DEFAULT_LAYOUT_DIR));
+        Path text = dir.resolve(name + TEXT_SUFFIX);
+        Path binary = dir.resolve(name + BINARY_SUFFIX);
+        try {
+            if (Files.isRegularFile(binary) && (!Files.isRegularFile(text)
+                    || Files.getLastModifiedTime(binary).compareTo(Files.getLastModifiedTime(text)) >= 0)) {
+                try {
+                    return map(binary);
+                } catch (IllegalArgumentException e) {
+                    // Compiled by another version of this format; the source still reads
+                    if (!Files.isRegularFile(text)) throw e;
+                }
+            }
+            if (Files.isRegularFile(text)) {
+                return parse(text);
+            }
+
+            // Packaged builds carry the layouts as resources
+            byte[] compiled = resource(name + BINARY_SUFFIX);
+            if (compiled != null) {
+                return read(ByteBuffer.wrap(compiled));
+            }
+            byte[] source = resource(name + TEXT_SUFFIX);
+            if (source != null) {
+                return read(ByteBuffer.wrap(compile(name + TEXT_SUFFIX, new String(source, StandardCharsets.UTF_8))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read layout '" + name + "'", e);
+        }
+        throw new IllegalStateException("Layout '" + name + "' not found in " + dir.toAbsolutePath()
+                + " or on the classpath");
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = LayoutFile.class.getResourceAsStream("/" + name)) {
+            return in != null ? in.readAllBytes() : null;
+        }
+    }
+
+    void write(Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = data.duplicate().clear();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    String getName() { return name; }
+
+    int getFirstFloor() { return firstFloor; }
+
+    int getFloorCount() { return floorCount; }
+
+    int getRoomCount() { return roomCount; }
+
+    int getEdgeCount() { return edgeCount; }
+
+    int sizeInBytes() { return data.limit(); }
+
+    // Rooms on one floor in declaration order, decoded on first use
+    List<Room> rooms(int floor) {
+        int slot = floor - firstFloor;
+        if (slot < 0 || slot >= floorCount) {
+            return Collections.emptyList();
+        }
+        List<Room> rooms = floors.get(slot);
+        if (rooms == null) {
+            // A racing decode produces an identical list
+            rooms = decodeFloor(floor, slot);
+            floors.set(slot, rooms);
+        }
+        return rooms;
+    }
+
+    private List<Room> decodeFloor(int floor, int slot) {
+        int entry = HEADER_BYTES + slot * FLOOR_BYTES;
+        int first = data.getInt(entry);
+        int count = data.getInt(entry + 4);
+        Room[] rooms = new Room[count];
+        for (int i = 0; i < count; i++) {
+            int record = roomsAt + (first + i) * ROOM_BYTES;
+            String tags = string(data.getInt(record + 12));
+            rooms[i] = new Room(string(data.getInt(record + 4)), string(data.getInt(record + 8)),
+                    tags == null ? List.of() : List.of(tags.split(",")), floor,
+                    data.getInt(record + 16), data.getInt(record + 20), data.getInt(record));
+        }
+        return List.of(rooms);
+    }
+
+    // Every room in declaration order
+    Room[] roomsInOrder() {
+        Room[] rooms = new Room[roomCount];
+        for (int floor = firstFloor; floor < firstFloor + floorCount; floor++) {
+            for (Room room : rooms(floor)) {
+                rooms[room.order] = room;
+            }
+        }
+        return rooms;
+    }
+
+    // Special area names as written, each with its room ID, in declaration order
+    Map<String, String> areas() {
+        Room[] rooms = roomsInOrder();
+        Map<String, String> areas = new LinkedHashMap<>();
+        for (int i = 0; i < areaCount; i++) {
+            int record = areasAt + i * AREA_BYTES;
+            areas.put(string(data.getInt(record)), rooms[data.getInt(record + 4)].id);
+        }
+        return areas;
+    }
+
+    List<Edge> edges() {
+        Room[] rooms = roomsInOrder();
+        List<Edge> edges = new ArrayList<>(edgeCount);
+        for (int i = 0; i < edgeCount; i++) {
+            int record = edgesAt + i * EDGE_BYTES;
+            edges.add(new Edge(rooms[data.getInt(record)].id, rooms[data.getInt(record + 4)].id,
+                    data.getInt(record + 8)));
+        }
+        return edges;
+    }
+
+    private String string(int offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        int at = stringsAt + offset;
+        int length = data.getShort(at) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        data.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---- Text compiler ----
+
+    /**
+     * Compiles layout text into the binary form. Errors are reported as
+     * IllegalArgumentException with the source name and line number.
+     */
+    static byte[] compile(String source, String text) {
+        Compiler compiler = new Compiler(source);
+        String[] lines = text.split("\r?\n", -1);
+        for (int i = 0; i < lines.length; i++) {
+            compiler.line(i + 1, lines[i]);
+        }
+        return compiler.finish();
+    }
+
+    private static final class Compiler {
+        private final String source;
+        private String name;
+        private int[] buildingFloors;
+
+        private final List<Room> rooms = new ArrayList<>();
+        private final Map<String, Room> roomsById = new HashMap<>();
+        private final List<String[]> areas = new ArrayList<>();
+
+        // Edge directives with their line numbers, resolved once every room is known
+        private final List<List<String>> edgeLines = new ArrayList<>();
+        private final List<Integer> edgeLineNumbers = new ArrayList<>();
+        private final List<Integer> edgeFloors = new ArrayList<>();
+
+        // Lines of the open for block
+        private int[] blockFloors;
+        private int blockLine;
+        private final List<List<String>> blockTokens = new ArrayList<>();
+        private final List<Integer> blockLineNumbers = new ArrayList<>();
+
+        private int lineNumber;
+
+        Compiler(String source) {
+            this.source = source;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(source + ":" + lineNumber + ": " + message);
+        }
+
+        void line(int number, String line) {
+            lineNumber = number;
+            List<String> tokens = tokenize(line);
+            if (tokens.isEmpty()) {
+                return;
+            }
+
+            String directive = tokens.get(0);
+            if (name == null && !directive.equals("building")) {
+                throw error("expected 'building NAME floors LIST' first");
+            }
+            switch (directive) {
+                case "building":
+                    if (name != null) throw error("building is already declared");
+                    if (tokens.size() != 4 || !tokens.get(2).equals("floors")) {
+                        throw error("expected 'building NAME floors LIST'");
+                    }
+                    name = tokens.get(1);
+                    buildingFloors = floorList(tokens.get(3));
+                    break;
+                case "for":
+                    if (blockFloors != null) throw error("for blocks do not nest");
+                    if (tokens.size() != 3 || !tokens.get(1).equals("floor")) {
+                        throw error("expected 'for floor LIST'");
+                    }
+                    blockFloors = floorList(tokens.get(2));
+                    for (int floor : blockFloors) {
+                        if (Arrays.binarySearch(buildingFloors, floor) < 0) {
+                            throw error("floor " + floor + " is not a floor of " + name);
+                        }
+                    }
+                    blockLine = number;
+                    break;
+                case "end":
+                    if (blockFloors == null) throw error("end without for");
+                    runBlock();
+                    break;
+                default:
+                    if (blockFloors != null) {
+                        blockTokens.add(tokens);
+                        blockLineNumbers.add(number);
+                    } else {
+                        statement(tokens, -1);
+                    }
+            }
+        }
+
+        // Runs the block's lines once per floor, floor by floor
+        private void runBlock() {
+            int endLine = lineNumber;
+            for (int floor : blockFloors) {
+                for (int i = 0; i < blockTokens.size(); i++) {
+                    lineNumber = blockLineNumbers.get(i);
+                    List<String> tokens = blockTokens.get(i);
+                    if (appliesTo(tokens, floor)) {
+                        statement(withoutFilter(tokens), floor);
+                    }
+                }
+            }
+            lineNumber = endLine;
+            blockFloors = null;
+            blockTokens.clear();
+            blockLineNumbers.clear();
+        }
+
+        private boolean appliesTo(List<String> tokens, int floor) {
+            int size = tokens.size();
+            if (size >= 3) {
+                String filter = tokens.get(size - 2);
+                if (filter.equals("only") || filter.equals("except")) {
+                    boolean listed = Arrays.binarySearch(floorList(tokens.get(size - 1)), floor) >= 0;
+                    return filter.equals("only") == listed;
+                }
+            }
+            return true;
+        }
+
+        private static List<String> withoutFilter(List<String> tokens) {
+            int size = tokens.size();
+            if (size >= 3 && (tokens.get(size - 2).equals("only") || tokens.get(size - 2).equals("except"))) {
+                return tokens.subList(0, size - 2);
+            }
+            return tokens;
+        }
+
+        // One directive; floor is -1 outside a for block
+        private void statement(List<String> tokens, int floor) {
+            String directive = tokens.get(0);
+            switch (directive) {
+                case "room":
+                case "area":
+                    if (floor < 0) throw error(directive + " must be inside a for floor block");
+                    room(tokens, floor, directive.equals("area"));
+                    break;
+                case "edge":
+                case "chain":
+                case "stairwell":
+                    if (tokens.size() > 1 && (tokens.get(tokens.size() - 2).equals("only")
+                            || tokens.get(tokens.size() - 2).equals("except"))) {
+                        throw error("only and except are for lines inside a for block");
+                    }
+                    edgeLines.add(tokens);
+                    edgeLineNumbers.add(lineNumber);
+                    edgeFloors.add(floor);
+                    break;
+                default:
+                    throw error("unknown directive '" + directive + "'");
+            }
+        }
+
+        private void room(List<String> tokens, int floor, boolean area) {
+            if (tokens.size() < 2) throw error("expected an ID");
+            String idTemplate = tokens.get(1);
+            int x = NO_POSITION;
+            int y = NO_POSITION;
+            int dx = 0;
+            int dy = 0;
+            String label = null;
+            List<String> tags = List.of();
+            String areaName = null;
+
+            for (int i = 2; i < tokens.size(); i += 2) {
+                if (i + 1 >= tokens.size()) throw error("'" + tokens.get(i) + "' needs a value");
+                String key = tokens.get(i);
+                String value = tokens.get(i + 1);
+                switch (key) {
+                    case "at":
+                        int[] at = pair(value);
+                        x = at[0];
+                        y = at[1];
+                        break;
+                    case "step":
+                        int[] step = pair(value);
+                        dx = step[0];
+                        dy = step[1];
+                        break;
+                    case "label":
+                        label = value;
+                        break;
+                    case "tags":
+                        tags = tagList(value);
+                        break;
+                    case "name":
+                        if (!area) throw error("only an area has a name");
+                        areaName = value;
+                        break;
+                    default:
+                        throw error("unexpected '" + key + "'");
+                }
+            }
+            if (area && (areaName == null || x == NO_POSITION)) {
+                throw error("expected 'area ID at X,Y name \"NAME\"'");
+            }
+            if ((dx != 0 || dy != 0) && x == NO_POSITION) {
+                throw error("step needs at");
+            }
+
+            int[] range = range(idTemplate);
+            if (area && range != null) throw error("an area is a single room");
+            int first = range != null ? range[0] : 0;
+            int last = range != null ? range[1] : 0;
+            for (int n = first; n <= last; n++) {
+                String id = expand(idTemplate, floor, n);
+                if (roomsById.containsKey(id)) {
+                    throw error("room " + id + " is declared twice");
+                }
+                int i = n - first;
+                Room room = new Room(id, label != null ? expand(label, floor, n) : null, tags, floor,
+                        x == NO_POSITION ? NO_POSITION : x + i * dx, x == NO_POSITION ? NO_POSITION : y + i * dy,
+                        rooms.size());
+                rooms.add(room);
+                roomsById.put(id, room);
+                if (area) {
+                    areas.add(new String[] {areaName, id});
+                }
+            }
+        }
+
+        // Resolves every edge directive in file order, once all rooms exist
+        private List<int[]> resolveEdges() {
+            List<int[]> edges = new ArrayList<>();
+            for (int i = 0; i < edgeLines.size(); i++) {
+                lineNumber = edgeLineNumbers.get(i);
+                List<String> tokens = edgeLines.get(i);
+                int floor = edgeFloors.get(i);
+                switch (tokens.get(0)) {
+                    case "edge":
+                        if (tokens.size() != 4) throw error("expected 'edge ID ID WEIGHT'");
+                        edges.add(new int[] {roomOrder(expand(tokens.get(1), floor, -1)),
+                                roomOrder(expand(tokens.get(2), floor, -1)), number(tokens.get(3))});
+                        break;
+                    case "chain":
+                        if (tokens.size() < 3) throw error("expected 'chain WEIGHT ID ID ...'");
+                        int weight = number(tokens.get(1));
+                        List<String> ids = new ArrayList<>();
+                        for (String template : tokens.subList(2, tokens.size())) {
+                            int[] range = range(template);
+                            if (range == null) {
+                                ids.add(expand(template, floor, -1));
+                            } else {
+                                for (int n = range[0]; n <= range[1]; n++) ids.add(expand(template, floor, n));
+                            }
+                        }
+                        if (ids.size() < 2) throw error("a chain needs at least two rooms");
+                        for (int j = 1; j < ids.size(); j++) {
+                            edges.add(new int[] {roomOrder(ids.get(j - 1)), roomOrder(ids.get(j)), weight});
+                        }
+                        break;
+                    case "stairwell":
+                        if (tokens.size() != 3) throw error("expected 'stairwell WEIGHT ID'");
+                        if (floor >= 0) throw error("stairwell spans floors, so it goes outside a for block");
+                        if (!tokens.get(2).contains("{f}")) throw error("a stairwell ID needs {f}");
+                        int perFloor = number(tokens.get(1));
+                        int previousFloor = Integer.MIN_VALUE;
+                        for (int f : buildingFloors) {
+                            Room room = roomsById.get(expand(tokens.get(2), f, -1));
+                            if (room == null) continue;
+                            if (previousFloor != Integer.MIN_VALUE) {
+                                Room below = roomsById.get(expand(tokens.get(2), previousFloor, -1));
+                                edges.add(new int[] {below.order, room.order, (f - previousFloor) * perFloor});
+                            }
+                            previousFloor = f;
+                        }
+                        break;
+                    default:
+                        throw new IllegalStateException(tokens.get(0));
+                }
+            }
+            return edges;
+        }
+
+        private int roomOrder(String id) {
+            Room room = roomsById.get(id);
+            if (room == null) throw error("unknown room " + id);
+            return room.order;
+        }
+
+        // Replaces {f} with the floor and a {a-b} range or {n} with the room number
+        private String expand(String template, int floor, int n) {
+            if (template.indexOf('{') < 0) {
+                return template;
+            }
+            StringBuilder out = new StringBuilder(template.length() + 4);
+            int i = 0;
+            while (i < template.length()) {
+                char c = template.charAt(i);
+                if (c != '{') {
+                    out.append(c);
+                    i++;
+                    continue;
+                }
+                int close = template.indexOf('}', i);
+                if (close < 0) throw error("unclosed { in '" + template + "'");
+                String field = template.substring(i + 1, close);
+                if (field.equals("f")) {
+                    if (floor < 0) throw error("{f} is only defined inside a for floor block");
+                    out.append(floor);
+                } else if (field.equals("n") || field.indexOf('-') > 0) {
+                    if (n < 0) throw error("no room number for '" + template + "'");
+                    out.append(n);
+                } else {
+                    throw error("unknown field {" + field + "}");
+                }
+                i = close + 1;
+            }
+            return out.toString();
+        }
+
+        // The {a-b} range in an ID, or null
+        private int[] range(String template) {
+            int[] found = null;
+            int open = template.indexOf('{');
+            while (open >= 0) {
+                int close = template.indexOf('}', open);
+                if (close < 0) throw error("unclosed { in '" + template + "'");
+                String field = template.substring(open + 1, close);
+                int dash = field.indexOf('-');
+                if (dash > 0) {
+                    if (found != null) throw error("an ID can hold only one range");
+                    found = new int[] {number(field.substring(0, dash)), number(field.substring(dash + 1))};
+                    if (found[1] < found[0]) throw error("empty range {" + field + "}");
+                }
+                open = template.indexOf('{', close);
+            }
+            return found;
+        }
+
+        // Sorted floors from a list like 0-8 or 1-6,8
+        private int[] floorList(String list) {
+            TreeSet<Integer> floors = new TreeSet<>();
+            for (String part : list.split(",")) {
+                int dash = part.indexOf('-', 1);
+                if (dash < 0) {
+                    floors.add(number(part));
+                } else {
+                    int from = number(part.substring(0, dash));
+                    int to = number(part.substring(dash + 1));
+                    if (to < from) throw error("empty floor range " + part);
+                    for (int f = from; f <= to; f++) floors.add(f);
+                }
+            }
+            return floors.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Lower-case category names from a list like classroom,c-wing
+        private List<String> tagList(String value) {
+            List<String> tags = new ArrayList<>();
+            for (String tag : value.split(",")) {
+                String trimmed = tag.trim().toLowerCase(Locale.ROOT);
+                if (trimmed.isEmpty()) throw error("empty tag in '" + value + "'");
+                if (!tags.contains(trimmed)) tags.add(trimmed);
+            }
+            return List.copyOf(tags);
+        }
+
+        private int[] pair(String value) {
+            int comma = value.indexOf(',');
+            if (comma < 0) throw error("expected X,Y but found '" + value + "'");
+            return new int[] {number(value.substring(0, comma)), number(value.substring(comma + 1))};
+        }
+
+        private int number(String value) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw error("expected a number but found '" + value + "'");
+            }
+        }
+
+        // Whitespace separated tokens; double quotes group a token, # outside quotes ends the line
+        private List<String> tokenize(String line) {
+            List<String> tokens = new ArrayList<>();
+            int i = 0;
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '#') {
+                    break;
+                } else if (c == '"') {
+                    int close = line.indexOf('"', i + 1);
+                    if (close < 0) throw error("unclosed quote");
+                    tokens.add(line.substring(i + 1, close));
+                    i = close + 1;
+                } else {
+                    int start = i;
+                    while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '#') i++;
+                    tokens.add(line.substring(start, i));
+                }
+            }
+            return tokens;
+        }
+
+        byte[] finish() {
+            if (blockFloors != null) {
+                lineNumber = blockLine;
+                throw error("for block without end");
+            }
+            if (name == null) {
+                throw new IllegalArgumentException(source + ": empty layout");
+            }
+            List<int[]> edges = resolveEdges();
+
+            int firstFloor = buildingFloors[0];
+            int floorCount = buildingFloors[buildingFloors.length - 1] - firstFloor + 1;
+
+            // Room records are grouped by floor so one floor decodes from one contiguous run
+            List<List<Room>> byFloor = new ArrayList<>();
+            for (int f = 0; f < floorCount; f++) byFloor.add(new ArrayList<>());
+            for (Room room : rooms) byFloor.get(room.floor - firstFloor).add(room);
+
+            Map<String, Integer> strings = new LinkedHashMap<>();
+            int[] stringSize = new int[1];
+            java.util.function.ToIntFunction<String> intern = s -> {
+                if (s == null) return NO_STRING;
+                return strings.computeIfAbsent(s, key -> {
+                    int offset = stringSize[0];
+                    int length = key.getBytes(StandardCharsets.UTF_8).length;
+                    if (length > 0xFFFF) throw error("string longer than 65535 bytes");
+                    stringSize[0] += 2 + length;
+                    return offset;
+                });
+            };
+
+            int stringsAt = HEADER_BYTES + floorCount * FLOOR_BYTES + rooms.size() * ROOM_BYTES
+                    + areas.size() * AREA_BYTES + edges.size() * EDGE_BYTES;
+            ByteBuffer out = ByteBuffer.allocate(stringsAt);
+            out.putInt(MAGIC).putInt(VERSION).putInt(intern.applyAsInt(name)).putInt(firstFloor).putInt(floorCount)
+               .putInt(rooms.size()).putInt(areas.size()).putInt(edges.size()).putInt(stringsAt).putInt(0);
+
+            int record = 0;
+            for (List<Room> floorRooms : byFloor) {
+                out.putInt(record).putInt(floorRooms.size());
+                record += floorRooms.size();
+            }
+            for (List<Room> floorRooms : byFloor) {
+                for (Room room : floorRooms) {
+                    out.putInt(room.order).putInt(intern.applyAsInt(room.id)).putInt(intern.applyAsInt(room.label))
+                       .putInt(intern.applyAsInt(room.tags.isEmpty() ? null : String.join(",", room.tags)))
+                       .putInt(room.x).putInt(room.y);
+                }
+            }
+            for (String[] area : areas) {
+                out.putInt(intern.applyAsInt(area[0])).putInt(roomsById.get(area[1]).order);
+            }
+            for (int[] edge : edges) {
+                out.putInt(edge[0]).putInt(edge[1]).putInt(edge[2]);
+            }
+
+            ByteBuffer compiled = ByteBuffer.allocate(stringsAt + stringSize[0]);
+            compiled.put(out.array());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                compiled.putShort((short) bytes.length).put(bytes);
+            }
+            return compiled.array();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args[0].equals("compile")) {
+            Path in = Path.of(args[1]);
+            Path out = args.length >= 3 ? Path.of(args[2])
+                    : Path.of(in.toString().replaceFirst("\\.layout$", "") + BINARY_SUFFIX);
+            LayoutFile layout = parse(in);
+            layout.write(out);
+            System.out.printf("Compiled %s: %d floors, %d rooms, %d edges, %d bytes -> %s%n",
+                    layout.getName(), layout.getFloorCount(), layout.getRoomCount(), layout.getEdgeCount(),
+                    layout.sizeInBytes(), out);
+        } else if (args.length == 2 && args[0].equals("info")) {
+            long start = System.nanoTime();
+            LayoutFile layout = open(Path.of(args[1]));
+            long opened = System.nanoTime();
+            System.out.printf("%s: floors %d-%d, %d rooms, %d areas, %d edges, %d bytes%n", layout.getName(),
+                    layout.getFirstFloor(), layout.getFirstFloor() + layout.getFloorCount() - 1,
+                    layout.getRoomCount(), layout.areaCount, layout.getEdgeCount(), layout.sizeInBytes());
+            for (int floor = layout.getFirstFloor(); floor < layout.getFirstFloor() + layout.getFloorCount(); floor++) {
+                System.out.printf("  floor %d: %d rooms%n", floor, layout.rooms(floor).size());
+            }
+            System.out.printf("Opened in %.3f ms%n", (opened - start) / 1e6);
+        } else {
+            System.err.println("Usage: java LayoutFile compile <in.layout> [out.layout.bin]");
+            System.err.println("       java LayoutFile info <file>");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes synthetic buildings with Brooklyn Tech's wings and staircases and as
+ * many floors as asked for, in both layout models: campus-F for
+ * BrooklynTechNavigation and campus-F-graph for BrooklynTechNavigator.
+ *
+ * Staircase positions are fixed by the navigation engines, so a building
+ * grows upward rather than outward. Every floor has the full N, S, E and W
+ * wings (9, 9, 24 and 24 rooms) and the eight-room C wing, except floor 7,
+ * which keeps Brooklyn Tech's missing middle staircases and so has no C wing.
+ * A thousand floors is about 74,000 rooms.
+ *
+ * Usage: java LayoutGenerator <floors> [dir]
+ */
+final class LayoutGenerator {
+
+    static final String PREFIX = "campus-";
+
+    // Floor without the middle staircases, as in the real building
+    private static final int NO_MIDDLE_STAIRS = 7;
+
+    static String coordinateName(int floors) { return PREFIX + floors; }
+
+    static String graphName(int floors) { return PREFIX + floors + "-graph"; }
+
+    // Room-position model, same grid as layouts/brooklyn-tech.layout
+    static String coordinateLayout(int floors) {
+        checkFloors(floors);
+        int last = floors - 1;
+        StringBuilder text = new StringBuilder();
+        text.append("# Generated by LayoutGenerator: ").append(floors).append(" floors\n\n");
+        text.append("building ").append(coordinateName(floors)).append(" floors 0-").append(last).append("\n\n");
+        text.append("for floor 0-").append(last).append('\n');
+        text.append("    room {f}N{1-9}   at 2,20  step 2,0    tags classroom,n-wing\n");
+        text.append("    room {f}S{1-9}   at 20,5  step -2,0   tags classroom,s-wing\n");
+        text.append("    room {f}E{1-24}  at 20,20 step 0,-1   tags classroom,e-wing\n");
+        text.append("    room {f}W{1-24}  at 2,20  step 0,-1   tags classroom,w-wing\n");
+        text.append("    room {f}C{1-8}   at 9,12  step 1,0    tags classroom,c-wing").append(middleFilter(floors)).append('\n');
+        text.append("end\n");
+        return text.toString();
+    }
+
+    // Corridor graph model, same hallways and weights as layouts/brooklyn-tech-graph.layout
+    static String graphLayout(int floors) {
+        checkFloors(floors);
+        int last = floors - 1;
+        String middle = middleFilter(floors);
+        StringBuilder text = new StringBuilder();
+        text.append("# Generated by LayoutGenerator: ").append(floors).append(" floors\n\n");
+        text.append("building ").append(graphName(floors)).append(" floors 0-").append(last).append("\n\n");
+        text.append("for floor 0-").append(last).append('\n');
+        text.append("    room N{1-9}F{f}   at 1,25  step 1,0   label \"N Side, Floor {f}, Room {n}\"\n");
+        text.append("    room S{1-9}F{f}   at 9,0   step -1,0  label \"S Side, Floor {f}, Room {n}\"\n");
+        text.append("    room E{1-24}F{f}  at 10,1  step 0,1   label \"E Side, Floor {f}, Room {n}\"\n");
+        text.append("    room W{1-24}F{f}  at 0,24  step 0,-1  label \"W Side, Floor {f}, Room {n}\"\n");
+        text.append("    room C{1-8}F{f}   at 2,13  step 1,0   label \"C Side, Floor {f}, Room {n}\"").append(middle).append('\n');
+        text.append("    room NWStairF{f}  at 0,25   label \"Staircase NW, Floor {f}\"\n");
+        text.append("    room NEStairF{f}  at 10,25  label \"Staircase NE, Floor {f}\"\n");
+        text.append("    room SWStairF{f}  at 0,0    label \"Staircase SW, Floor {f}\"\n");
+        text.append("    room SEStairF{f}  at 10,0   label \"Staircase SE, Floor {f}\"\n");
+        text.append("    room E12StairF{f} at 10,13  label \"East Staircase 12, Floor {f}\"").append(middle).append('\n');
+        text.append("    room W12StairF{f} at 1,13   label \"West Staircase 12, Floor {f}\"").append(middle).append('\n');
+        text.append("end\n\n");
+        text.append("for floor 0-").append(last).append('\n');
+        text.append("    chain 5 NWStairF{f} N{1-9}F{f} NEStairF{f}\n");
+        text.append("    chain 5 SEStairF{f} E{1-24}F{f} NEStairF{f}\n");
+        text.append("    chain 5 SEStairF{f} S{1-9}F{f} SWStairF{f}\n");
+        text.append("    chain 5 NWStairF{f} W{1-24}F{f} SWStairF{f}\n");
+        text.append("    chain 5 W12StairF{f} C{1-8}F{f} E12StairF{f}").append(middle).append('\n');
+        text.append("    edge W12StairF{f} W12F{f} 5").append(middle).append('\n');
+        text.append("    edge E12StairF{f} E12F{f} 5").append(middle).append('\n');
+        text.append("end\n\n");
+        for (String stair : new String[] {"NW", "NE", "SW", "SE", "E12", "W12"}) {
+            text.append("stairwell 30 ").append(stair).append("StairF{f}\n");
+        }
+        return text.toString();
+    }
+
+    // Compiles generated text in memory, as LayoutFile does for a text layout on disk
+    static LayoutFile toLayoutFile(String name, String text) {
+        return LayoutFile.read(ByteBuffer.wrap(LayoutFile.compile(name + LayoutFile.TEXT_SUFFIX, text)));
+    }
+
+    private static String middleFilter(int floors) {
+        return floors > NO_MIDDLE_STAIRS ? "   except " + NO_MIDDLE_STAIRS : "";
+    }
+
+    private static void checkFloors(int floors) {
+        if (floors < 1) {
+            throw new IllegalArgumentException("A building needs at least one floor, not " + floors);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java LayoutGenerator <floors> [dir]");
+            System.exit(2);
+        }
+        int floors = Integer.parseInt(args[0]);
+        Path dir = Path.of(args.length > 1 ? args[1] : System.getProperty(LayoutFile.LAYOUT_DIR_PROPERTY, "layouts"));
+        Files.createDirectories(dir);
+
+        String[][] models = {
+            {coordinateName(floors), coordinateLayout(floors)},
+            {graphName(floors), graphLayout(floors)},
+        };
+        for (String[] model : models) {
+            Path text = dir.resolve(model[0] + LayoutFile.TEXT_SUFFIX);
+            Path binary = dir.resolve(model[0] + LayoutFile.BINARY_SUFFIX);
+            Files.writeString(text, model[1]);
+            LayoutFile layout = toLayoutFile(model[0], model[1]);
+            layout.write(binary);
+            System.out.printf("Generated %s: %d floors, %d rooms, %d edges, %d bytes -> %s%n",
+                    layout.getName(), layout.getFloorCount(), layout.getRoomCount(), layout.getEdgeCount(),
+                    layout.sizeInBytes(), binary);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local load generator for {@link NavigationServer}.
+ *
+ * Opens one keep-alive connection per simulated client, each on its own
+ * virtual thread, waits until every client is connected, then has all of them
+ * send route requests for random room pairs at once. With --pipeline=N a
+ * client writes N requests before reading the N responses. Reports throughput
+ * and p50/p90/p99/p99.9 latency, measured from writing a request to reading
+ * the end of its response.
+ *
+ * Run the server in its own JVM so each side has its own file descriptors:
+ *   java NavigationServer 8080
+ *   java NavigationLoadGenerator --clients=10000 --requests=20
+ *
+ * Usage: java NavigationLoadGenerator [--host=localhost] [--port=8080] [--clients=10000]
+ *        [--requests=20] [--pipeline=1]
+ */
+public class NavigationLoadGenerator {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 30_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        String host = "localhost";
+        int port = NavigationServer.DEFAULT_PORT;
+        int clients = 10_000;
+        int requests = 20;
+        int pipeline = 1;
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) host = arg.substring("--host=".length());
+            else if (arg.startsWith("--port=")) port = Integer.parseInt(arg.substring("--port=".length()));
+            else if (arg.startsWith("--clients=")) clients = Integer.parseInt(arg.substring("--clients=".length()));
+            else if (arg.startsWith("--requests=")) requests = Integer.parseInt(arg.substring("--requests=".length()));
+            else if (arg.startsWith("--pipeline=")) pipeline = Integer.parseInt(arg.substring("--pipeline=".length()));
+        }
+        if (requests % pipeline != 0) {
+            throw new IllegalArgumentException("--requests must be a multiple of --pipeline");
+        }
+
+        List<String> rooms = new ArrayList<>(BrooklynTechNavigation.currentLayout().getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+
+        System.out.println("=== Navigation server load test ===");
+        System.out.printf("Target: %s:%d, clients: %d, requests per client: %d, pipeline depth: %d%n",
+                host, port, clients, requests, pipeline);
+
+        long[][] latencies = new long[clients][];
+        AtomicInteger failures = new AtomicInteger();
+        AtomicReference<String> firstFailure = new AtomicReference<>();
+        AtomicInteger connected = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch go = new CountDownLatch(1);
+
+        long start;
+        long elapsed;
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                Client client = new Client(host, port, requests, pipeline, rooms, new Random(c));
+                int slot = c;
+                threads.submit(() -> {
+                    try {
+                        latencies[slot] = client.run(ready, go, connected);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                        firstFailure.compareAndSet(null, e.toString());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            // Every client is connected (or has failed) before the first request goes out
+            ready.await();
+            System.out.printf("Connected: %d of %d clients%n", connected.get(), clients);
+            start = System.nanoTime();
+            go.countDown();
+        }
+        elapsed = System.nanoTime() - start;
+
+        int total = 0;
+        for (long[] client : latencies) {
+            if (client != null) total += client.length;
+        }
+        long[] all = new long[total];
+        int next = 0;
+        for (long[] client : latencies) {
+            if (client == null) continue;
+            System.arraycopy(client, 0, all, next, client.length);
+            next += client.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("Requests: %d in %.2f s (%.0f req/s), failed clients: %d%n",
+                total, elapsed / 1e9, total / (elapsed / 1e9), failures.get());
+        if (firstFailure.get() != null) {
+            System.out.println("First failure: " + firstFailure.get());
+        }
+        if (total > 0) {
+            System.out.printf("Latency: p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms%n",
+                    percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 99.9),
+                    all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    // One keep-alive connection sending route requests
+    private static final class Client {
+        private final String host;
+        private final int port;
+        private final int requests;
+        private final int pipeline;
+        private final List<String> rooms;
+        private final Random random;
+
+        Client(String host, int port, int requests, int pipeline, List<String> rooms, Random random) {
+            this.host = host;
+            this.port = port;
+            this.requests = requests;
+            this.pipeline = pipeline;
+            this.rooms = rooms;
+            this.random = random;
+        }
+
+        long[] run(CountDownLatch ready, CountDownLatch go, AtomicInteger connected)
+                throws IOException, InterruptedException {
+            Socket socket = new Socket();
+            try {
+                try {
+                    socket.setTcpNoDelay(true);
+                    socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                    connected.incrementAndGet();
+                } finally {
+                    ready.countDown();
+                }
+                go.await();
+
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                long[] latencies = new long[requests];
+                StringBuilder batch = new StringBuilder(pipeline * 96);
+                for (int sent = 0; sent < requests; sent += pipeline) {
+                    batch.setLength(0);
+                    for (int i = 0; i < pipeline; i++) {
+                        String from = rooms.get(random.nextInt(rooms.size()));
+                        String to = rooms.get(random.nextInt(rooms.size()));
+                        batch.append("GET /route?from=").append(from).append("&to=").append(to)
+                             .append(" HTTP/1.1\r\nHost: ").append(host).append("\r\n\r\n");
+                    }
+                    long sentAt = System.nanoTime();
+                    out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    for (int i = 0; i < pipeline; i++) {
+                        readResponse(in);
+                        latencies[sent + i] = System.nanoTime() - sentAt;
+                    }
+                }
+                return latencies;
+            } finally {
+                socket.close();
+            }
+        }
+
+        // Reads one response, headers then a Content-Length body
+        private static void readResponse(InputStream in) throws IOException {
+            String status = readLine(in);
+            if (!status.startsWith("HTTP/1.1 200") && !status.startsWith("HTTP/1.1 422")) {
+                throw new IOException("Unexpected response: " + status);
+            }
+            int length = -1;
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    length = Integer.parseInt(line.substring(15).trim());
+                }
+            }
+            if (length < 0) {
+                throw new IOException("Response without Content-Length");
+            }
+            in.skipNBytes(length);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c == -1) throw new IOException("Connection closed");
+                if (c != '\r') line.append((char) c);
+            }
+            return line.toString();
+        }
+    }
+}
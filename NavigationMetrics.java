@@ -0,0 +1,269 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on counters and latency histograms for the router, shared by the
+ * REPL, the HTTP server and bulk mode.
+ *
+ * Recording never locks: counters are LongAdders and each histogram is an
+ * array of atomic bucket counts on a log-linear scale, like HdrHistogram, with
+ * 32 buckets per power of two so any reported latency is within about 3% of
+ * the real one. Latencies are timed on a random sample of calls, while
+ * counters count every call. Queries slower than a millisecond are also emitted as JFR
+ * events, which cost nothing unless a recording enables them.
+ */
+public final class NavigationMetrics {
+
+    // Timed phases of a query; TOTAL is a whole getDirections call
+    public enum Phase {
+        NORMALIZE("input normalization"),
+        STAIRS("staircase selection"),
+        ROUTE("route computation"),
+        RENDER("text rendering"),
+        TOTAL("getDirections total");
+
+        private final String label;
+
+        Phase(String label) { this.label = label; }
+
+        public String getLabel() { return label; }
+    }
+
+    // A whole query takes a few hundred ns, not much more than two clock reads and a recording,
+    // so one call in SAMPLE_EVERY is timed; percentiles from the sample are just as accurate
+    static final int SAMPLE_EVERY = 16;
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LongAdder sameRoom = new LongAdder();
+    private final LongAdder closedRooms = new LongAdder();
+    private final LongAdder noStairs = new LongAdder();
+
+    // Routes handed out through each staircase, in ALL_STAIRS order, and same-floor routes
+    private final LongAdder[] stairSelections = new LongAdder[BrooklynTechNavigation.ALL_STAIRS.length];
+    private final LongAdder sameFloor = new LongAdder();
+
+    public NavigationMetrics() {
+        for (int i = 0; i < phases.length; i++) phases[i] = new LatencyHistogram();
+        for (int i = 0; i < stairSelections.length; i++) stairSelections[i] = new LongAdder();
+    }
+
+    // Adds the time since start, a System.nanoTime reading
+    void record(Phase phase, long start) {
+        phases[phase.ordinal()].record(System.nanoTime() - start);
+    }
+
+    // Start of a sampled phase, or NOT_SAMPLED for the calls that are not timed
+    static long startSampled() {
+        return (ThreadLocalRandom.current().nextInt() & (SAMPLE_EVERY - 1)) == 0 ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    void recordSampled(Phase phase, long start) {
+        if (start != NOT_SAMPLED) record(phase, start);
+    }
+
+    void countQuery() { queries.increment(); }
+
+    void countLookupMiss() { lookupMisses.increment(); }
+
+    void countSameRoom() { sameRoom.increment(); }
+
+    void countClosedRoom() { closedRooms.increment(); }
+
+    void countNoStairs() { noStairs.increment(); }
+
+    // A staircase index into ALL_STAIRS, or RoutingKernel.SAME_FLOOR; NO_STAIRS is counted by countNoStairs
+    void countStair(int stair) {
+        if (stair >= 0) {
+            stairSelections[stair].increment();
+        } else if (stair == RoutingKernel.SAME_FLOOR) {
+            sameFloor.increment();
+        }
+    }
+
+    public LatencyHistogram getHistogram(Phase phase) { return phases[phase.ordinal()]; }
+
+    public long getQueries() { return queries.sum(); }
+
+    public long getLookupMisses() { return lookupMisses.sum(); }
+
+    public long getSameRoomQueries() { return sameRoom.sum(); }
+
+    public long getClosedRoomQueries() { return closedRooms.sum(); }
+
+    public long getNoStairsQueries() { return noStairs.sum(); }
+
+    public long getStairSelections(String name) {
+        for (int i = 0; i < stairSelections.length; i++) {
+            if (BrooklynTechNavigation.STAIR_NAMES[i].equalsIgnoreCase(name)) return stairSelections[i].sum();
+        }
+        throw new IllegalArgumentException("Unknown staircase '" + name + "'");
+    }
+
+    public long getSameFloorRoutes() { return sameFloor.sum(); }
+
+    // Counts from concurrent queries may be split across a reset; fine for dashboards
+    public void reset() {
+        for (LatencyHistogram histogram : phases) histogram.reset();
+        queries.reset();
+        lookupMisses.reset();
+        sameRoom.reset();
+        closedRooms.reset();
+        noStairs.reset();
+        for (LongAdder count : stairSelections) count.reset();
+        sameFloor.reset();
+    }
+
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Navigation metrics: %d queries, %d lookup misses, %d same-room, "
+                        + "%d closed rooms, %d with no open staircase%n",
+                getQueries(), getLookupMisses(), getSameRoomQueries(), getClosedRoomQueries(), getNoStairsQueries()));
+        report.append(String.format("  %-22s %10s %9s %9s %9s %9s %9s %9s%n",
+                "phase (us)", "timed", "mean", "p50", "p90", "p99", "p99.9", "max"));
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = getHistogram(phase);
+            report.append(String.format("  %-22s %10d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", phase.getLabel(),
+                    h.getCount(), h.getMean() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.9) / 1e3,
+                    h.percentile(0.99) / 1e3, h.percentile(0.999) / 1e3, h.getMax() / 1e3));
+        }
+        report.append("  Routes by staircase:");
+        for (int i = 0; i < stairSelections.length; i++) {
+            report.append(' ').append(BrooklynTechNavigation.STAIR_NAMES[i]).append(' ').append(stairSelections[i].sum());
+        }
+        report.append(", same floor ").append(getSameFloorRoutes());
+        return report.toString();
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"queries\":").append(getQueries());
+        json.append(",\"lookupMisses\":").append(getLookupMisses());
+        json.append(",\"sameRoom\":").append(getSameRoomQueries());
+        json.append(",\"closedRooms\":").append(getClosedRoomQueries());
+        json.append(",\"noStairs\":").append(getNoStairsQueries());
+        json.append(",\"stairs\":{");
+        for (int i = 0; i < stairSelections.length; i++) {
+            json.append('"').append(BrooklynTechNavigation.STAIR_NAMES[i]).append("\":").append(stairSelections[i].sum());
+            json.append(',');
+        }
+        json.append("\"sameFloor\":").append(getSameFloorRoutes()).append('}');
+        json.append(",\"latencyNanos\":{");
+        for (Phase phase : Phase.values()) {
+            LatencyHistogram h = getHistogram(phase);
+            if (phase.ordinal() > 0) json.append(',');
+            json.append('"').append(phase.name().toLowerCase()).append("\":{");
+            json.append("\"timed\":").append(h.getCount());
+            json.append(",\"mean\":").append(Math.round(h.getMean()));
+            json.append(",\"p50\":").append(h.percentile(0.5));
+            json.append(",\"p90\":").append(h.percentile(0.9));
+            json.append(",\"p99\":").append(h.percentile(0.99));
+            json.append(",\"p999\":").append(h.percentile(0.999));
+            json.append(",\"max\":").append(h.getMax());
+            json.append('}');
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    /**
+     * Nanosecond latencies bucketed log-linearly: exact below 32 ns, then 32
+     * equal buckets per power of two up to about 18 minutes, where larger
+     * values are clamped. Percentiles report the top of their bucket.
+     */
+    public static final class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            counts.getAndIncrement(bucketOf(nanos));
+            total.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_COUNT) return (int) value;
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            if (exponent == MAX_EXPONENT && value >= 2L << MAX_EXPONENT) return BUCKETS - 1;
+            int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+        }
+
+        // Largest value that lands in the bucket
+        static long highestIn(int bucket) {
+            if (bucket < SUB_COUNT) return bucket;
+            int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+            long low = (long) (SUB_COUNT + bucket % SUB_COUNT) << (exponent - SUB_BITS);
+            return low + (1L << (exponent - SUB_BITS)) - 1;
+        }
+
+        public long getCount() { return total.sum(); }
+
+        public double getMean() {
+            long count = total.sum();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        public long getMax() { return max.get(); }
+
+        // Value at or below which the given fraction of recordings fall, capped at the recorded maximum
+        public long percentile(double fraction) {
+            long count = total.sum();
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank) return Math.min(highestIn(bucket), getMax());
+            }
+            return getMax();
+        }
+
+        void reset() {
+            for (int bucket = 0; bucket < BUCKETS; bucket++) counts.set(bucket, 0);
+            total.reset();
+            sum.reset();
+            max.reset();
+        }
+    }
+
+    // Emitted for getDirections calls over the threshold while a JFR recording has it enabled
+    @Name("brooklyntech.SlowRoute")
+    @Label("Slow Route")
+    @Category("Brooklyn Tech Navigation")
+    @Description("A getDirections call that took longer than the threshold")
+    @Threshold("1 ms")
+    static final class SlowRouteEvent extends Event {
+        @Label("From")
+        String from;
+
+        @Label("To")
+        String to;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Estimated Minutes")
+        double minutes;
+    }
+}
@@ -0,0 +1,100 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Measures what the built-in metrics cost: a histogram recording alone and
+ * under contention from every core, set against a whole getDirections call.
+ * Then checks the histogram's percentiles against exact ones from sorted
+ * samples, and that slow-route JFR events reach a recording.
+ *
+ * Usage: java NavigationMetricsBenchmark [queries]
+ */
+public class NavigationMetricsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        List<String> rooms = new ArrayList<>(BrooklynTechNavigation.currentLayout().getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+
+        System.out.println("=== Navigation metrics ===");
+
+        // One recording in isolation
+        NavigationMetrics.LatencyHistogram histogram = new NavigationMetrics.LatencyHistogram();
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) histogram.record(i & 4095);
+            long elapsed = System.nanoTime() - start;
+            if (round == 2) System.out.printf("Histogram record, 1 thread: %.1f ns%n", (double) elapsed / queries);
+        }
+
+        // Every core recording into the same histogram
+        int threads = Runtime.getRuntime().availableProcessors();
+        NavigationMetrics.LatencyHistogram shared = new NavigationMetrics.LatencyHistogram();
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < queries; i++) shared.record(200 + (i & 1023));
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        System.out.printf("Histogram record, %d threads: %.1f ns per thread%n", threads,
+                (double) (System.nanoTime() - start) / queries);
+
+        // A query records about five phases; compare with the query itself
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = rooms.get(random.nextInt(rooms.size()));
+            to[i] = rooms.get(random.nextInt(rooms.size()));
+        }
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < queries; i++) sink += BrooklynTechNavigation.getDirections(from[i], to[i]).getSteps().size();
+            long elapsed = System.nanoTime() - start;
+            if (round == 2) System.out.printf("getDirections with metrics: %.1f ns (%d steps)%n", (double) elapsed / queries, sink);
+        }
+
+        // Percentiles from the histogram against exact ones
+        long[] samples = new long[queries];
+        NavigationMetrics.LatencyHistogram check = new NavigationMetrics.LatencyHistogram();
+        for (int i = 0; i < queries; i++) {
+            samples[i] = (long) Math.exp(random.nextGaussian() * 1.5 + 8);
+            check.record(samples[i]);
+        }
+        Arrays.sort(samples);
+        double worst = 0;
+        for (double p : new double[] {0.5, 0.9, 0.99, 0.999}) {
+            long exact = samples[(int) Math.ceil(p * queries) - 1];
+            worst = Math.max(worst, Math.abs(check.percentile(p) - exact) / (double) exact);
+        }
+        System.out.printf("Worst percentile error on log-normal samples: %.2f%%%n", worst * 100);
+
+        // Slow-route events with the threshold lowered so every query qualifies
+        Path file = Files.createTempFile("navigation", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("brooklyntech.SlowRoute").withThreshold(java.time.Duration.ZERO);
+            recording.start();
+            for (int i = 0; i < 1000; i++) BrooklynTechNavigation.getDirections(from[i], to[i]);
+            BrooklynTechNavigation.getDirections("4N5", "nowhere");
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        long errors = events.stream().filter(e -> e.getString("outcome").startsWith("Error")).count();
+        System.out.println("Slow-route JFR events with a zero threshold: " + events.size() + " of 1001 queries, "
+                + errors + " for the unknown room");
+
+        System.out.println();
+        System.out.println(BrooklynTechNavigation.getMetrics().report());
+    }
+}
@@ -0,0 +1,383 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end for {@link BrooklynTechNavigation}, for kiosks and the phone app.
+ *
+ * Built on the JDK's com.sun.net.httpserver with one virtual thread per
+ * request. Connections stay open between requests (HTTP/1.1 keep-alive) and
+ * requests a client pipelines on one connection are answered in order.
+ *
+ *   GET  /route?from=4N5&to=2E12[&text=true]  one route
+ *   POST /batch[?text=true]                   one "from,to" pair per line, routes in the same order
+ *   GET  /rooms?q=libary                      resolve input to a room, with suggestions when it does not
+ *   GET  /nearest?from=4N5&category=gym[&k=3|&within=2]
+ *                                             nearest rooms of a category by travel time; category=stairs
+ *                                             lists open staircases on the same floor
+ *   GET  /metrics[?reset=true]                query counters and per-phase latency percentiles
+ *
+ * Responses are compact JSON built from NavigationResult; rendered text
+ * directions are only included when asked for with text=true.
+ *
+ * Usage: java NavigationServer [port|--port=N] [--precomputed] [--transit-node] [--cache=N]
+ */
+public class NavigationServer {
+
+    static final int DEFAULT_PORT = 8080;
+
+    private static final String USAGE =
+            "Usage: java NavigationServer [port|--port=N] [--precomputed] [--transit-node] [--cache=N]";
+
+    // Requests that fail inside the server; the default logger writes them to stderr
+    private static final System.Logger LOG = System.getLogger(NavigationServer.class.getName());
+
+    // Queued connections the OS holds while every accept is busy
+    private static final int BACKLOG = 4096;
+
+    // Largest batch body accepted, about 100k pairs
+    private static final int MAX_BATCH_BYTES = 4 << 20;
+
+    // The JDK server closes idle keep-alive connections beyond 200 by default; kiosks hold theirs open
+    private static final String MAX_IDLE_CONNECTIONS = "20000";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public NavigationServer(int port) throws IOException {
+        // Read once when the JDK server classes load, so set them before the first server is created
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", MAX_IDLE_CONNECTIONS);
+        }
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/route", exchange -> handle(exchange, "GET", this::route));
+        server.createContext("/batch", exchange -> handle(exchange, "POST", this::batch));
+        server.createContext("/rooms", exchange -> handle(exchange, "GET", this::rooms));
+        server.createContext("/nearest", exchange -> handle(exchange, "GET", this::nearest));
+        server.createContext("/metrics", exchange -> handle(exchange, "GET", this::metrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // A response ready to send
+    private static final class Reply {
+        final int status;
+        final String json;
+
+        Reply(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    private interface Endpoint {
+        Reply serve(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+
+    private static void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Reply reply;
+        try {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                reply = error(405, "Use " + method + " for " + exchange.getRequestURI().getPath());
+            } else {
+                reply = endpoint.serve(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+            }
+        } catch (IllegalArgumentException e) {
+            reply = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.ERROR, "Failed " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI(), e);
+            reply = error(500, "Internal error");
+        }
+
+        // A fixed length keeps the connection open for the client's next request
+        byte[] body = reply.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(reply.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private Reply route(HttpExchange exchange, Map<String, String> query) {
+        String from = required(query, "from");
+        String to = required(query, "to");
+        BrooklynTechNavigation.NavigationResult result = BrooklynTechNavigation.getDirections(from, to);
+
+        StringBuilder json = new StringBuilder(256);
+        appendResult(json, result, "true".equals(query.get("text")));
+        return new Reply(httpStatus(result), json.toString());
+    }
+
+    private Reply batch(HttpExchange exchange, Map<String, String> query) throws IOException {
+        List<BrooklynTechNavigation.RoutePair> pairs = new ArrayList<>();
+        String body = readBody(exchange.getRequestBody());
+        int lineNumber = 0;
+        for (String line : body.split("\n")) {
+            lineNumber++;
+            if (line.isBlank()) continue;
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected from,to");
+            }
+            pairs.add(new BrooklynTechNavigation.RoutePair(line.substring(0, comma).trim(), line.substring(comma + 1).trim()));
+        }
+
+        // Each request already has its own virtual thread; large batches also fan out over the shared batch pool
+        int parallelism = pairs.size() > 256 ? Runtime.getRuntime().availableProcessors() : 1;
+        List<BrooklynTechNavigation.NavigationResult> results = BrooklynTechNavigation.getDirectionsBatch(pairs, parallelism);
+
+        boolean text = "true".equals(query.get("text"));
+        StringBuilder json = new StringBuilder(64 + 160 * results.size());
+        json.append("{\"routes\":[");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) json.append(',');
+            appendResult(json, results.get(i), text);
+        }
+        json.append("]}");
+        return new Reply(200, json.toString());
+    }
+
+    private Reply rooms(HttpExchange exchange, Map<String, String> query) {
+        String input = required(query, "q");
+        String room = BrooklynTechNavigation.resolveRoom(input);
+
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"query\":");
+        appendString(json, input);
+        if (room != null) {
+            json.append(",\"room\":");
+            appendString(json, room);
+            json.append(",\"name\":");
+            appendString(json, BrooklynTechNavigation.roomDisplayName(room));
+            json.append('}');
+            return new Reply(200, json.toString());
+        }
+
+        json.append(",\"suggestions\":[");
+        List<String> suggestions = BrooklynTechNavigation.suggestRooms(input);
+        for (int i = 0; i < suggestions.size(); i++) {
+            if (i > 0) json.append(',');
+            appendString(json, suggestions.get(i));
+        }
+        json.append("]}");
+        return new Reply(404, json.toString());
+    }
+
+    private Reply nearest(HttpExchange exchange, Map<String, String> query) {
+        String from = required(query, "from");
+        String category = query.get("category");
+        String within = query.get("within");
+        int k = query.containsKey("k") ? Integer.parseInt(query.get("k")) : 1;
+
+        List<SpatialIndex.Match> matches;
+        if ("stairs".equalsIgnoreCase(category)) {
+            matches = SpatialIndex.nearestStairs(from, k);
+        } else if (within != null) {
+            matches = SpatialIndex.within(from, category, Double.parseDouble(within));
+        } else {
+            matches = SpatialIndex.nearest(from, category, k);
+        }
+
+        StringBuilder json = new StringBuilder(32 + 48 * matches.size());
+        json.append("{\"matches\":[");
+        for (int i = 0; i < matches.size(); i++) {
+            SpatialIndex.Match match = matches.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"room\":");
+            appendString(json, match.getRoom());
+            json.append(",\"floor\":").append(match.getFloor());
+            json.append(",\"minutes\":").append(Math.round(match.getMinutes() * 100) / 100.0);
+            json.append('}');
+        }
+        json.append("]}");
+        return new Reply(200, json.toString());
+    }
+
+    private Reply metrics(HttpExchange exchange, Map<String, String> query) {
+        NavigationMetrics metrics = BrooklynTechNavigation.getMetrics();
+        String json = metrics.toJson();
+        if ("true".equals(query.get("reset"))) {
+            metrics.reset();
+        }
+        return new Reply(200, json);
+    }
+
+    // Rooms that do not resolve, are closed or cannot be reached are the client's problem, not the server's
+    private static int httpStatus(BrooklynTechNavigation.NavigationResult result) {
+        switch (result.getStatus()) {
+            case NOT_FOUND:
+            case CLOSED:
+            case NO_STAIRS:
+                return 422;
+            default:
+                return 200;
+        }
+    }
+
+    static void appendResult(StringBuilder json, BrooklynTechNavigation.NavigationResult result, boolean text) {
+        if (result.getFrom() == null) {
+            // Errors and "already there" carry only their message
+            json.append(result.getStatus().isError() ? "{\"error\":" : "{\"message\":");
+            appendString(json, result.getDirections());
+            json.append('}');
+            return;
+        }
+
+        json.append("{\"from\":");
+        appendString(json, result.getFrom());
+        json.append(",\"to\":");
+        appendString(json, result.getTo());
+        json.append(",\"minutes\":").append(Math.round(result.getEstimatedTime() * 100) / 100.0);
+        json.append(",\"steps\":[");
+        List<BrooklynTechNavigation.RouteStep> steps = result.getSteps();
+        String stair = result.getStairName();
+        for (int i = 0; i < steps.size(); i++) {
+            BrooklynTechNavigation.RouteStep step = steps.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"kind\":\"").append(step.getKind()).append('"');
+            if (step.getKind() == BrooklynTechNavigation.RouteStep.Kind.TAKE_STAIRS) {
+                json.append(",\"stair\":");
+                appendString(json, stair);
+                json.append(",\"fromFloor\":").append(step.getFromFloor());
+                json.append(",\"toFloor\":").append(step.getToFloor());
+            } else if (step.getTarget() != null) {
+                json.append(step.getKind() == BrooklynTechNavigation.RouteStep.Kind.SPECIAL_ACCESS
+                        ? ",\"note\":" : ",\"room\":");
+                appendString(json, step.getTarget());
+            }
+            json.append('}');
+        }
+        json.append(']');
+        if (text) {
+            json.append(",\"directions\":");
+            appendString(json, result.getDirections());
+        }
+        json.append('}');
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static Reply error(int status, String message) {
+        StringBuilder json = new StringBuilder(message.length() + 16);
+        json.append("{\"error\":");
+        appendString(json, message);
+        json.append('}');
+        return new Reply(status, json.toString());
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing query parameter '" + name + "'");
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> query = new HashMap<>();
+        for (String part : rawQuery.split("&")) {
+            int equals = part.indexOf('=');
+            String name = equals < 0 ? part : part.substring(0, equals);
+            String value = equals < 0 ? "" : part.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (body.size() + read > MAX_BATCH_BYTES) {
+                throw new IllegalArgumentException("Batch larger than " + MAX_BATCH_BYTES + " bytes");
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        for (String arg : args) {
+            try {
+                if (arg.equals("--precomputed")) {
+                    System.out.println(BrooklynTechNavigation.enablePrecomputedRoutes().memoryReport());
+                } else if (arg.equals("--transit-node")) {
+                    BrooklynTechNavigation.enableTransitNodeRouting();
+                } else if (arg.startsWith("--cache=")) {
+                    BrooklynTechNavigation.enableRouteCache(Integer.parseInt(arg.substring("--cache=".length())),
+                            RouteCache.EvictionPolicy.LRU);
+                } else if (arg.startsWith("--port=")) {
+                    port = Integer.parseInt(arg.substring("--port=".length()));
+                } else if (!arg.isEmpty() && arg.chars().allMatch(Character::isDigit)) {
+                    port = Integer.parseInt(arg);
+                } else {
+                    usage("Unknown option " + arg);
+                }
+            } catch (NumberFormatException e) {
+                usage("Not a number: " + arg);
+            }
+        }
+
+        NavigationServer server = new NavigationServer(port);
+        server.start();
+        System.out.println("Brooklyn Tech Navigation listening on http://localhost:" + server.getPort());
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,538 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Agent-based simulation of a school day of passing periods.
+ *
+ * Each student follows their schedule (an ordered list of rooms). At every
+ * bell the student is routed through the building model, roomCoordinates and
+ * the stair arrays, and walks the route in one second ticks: down their
+ * wing's corridor to the staircase, one flight per floor, and along the
+ * destination wing to the room. Corridors and flights hold a limited number of
+ * students at once. Students wait in class until their corridor has room and
+ * wait on a landing until the next flight does; students coming off the
+ * stairs always fit into the corridor, so the stairs keep draining.
+ *
+ * Each tick runs in two phases, both split by floor across worker threads.
+ * First every floor advances the students on its corridors and flights and
+ * collects the ones ready for their next leg; then every floor admits the
+ * waiting students into the corridors and flights it owns (a flight belongs to
+ * the floor at its bottom). Students leaving a corridor or flight owned by
+ * another floor are released there on the next tick. Admission order depends
+ * only on when and in what order students started waiting, so results are the
+ * same at any thread count.
+ *
+ * Usage: java PassingPeriodSimulator [--students=6000] [--periods=10] [--threads=N]
+ *        [--schedule=file.csv] [--congestion]
+ * A schedule file has one student per line: name,room,room,...
+ */
+public class PassingPeriodSimulator {
+
+    static final int PASSING_PERIOD_SECONDS = 300;
+    static final int STAIR_CAPACITY = 40; // Students on one flight in one direction at once
+    static final int CORRIDOR_CAPACITY = 120; // Students in one wing's corridor at once
+
+    private static final String WINGS = "NSEWC";
+    private static final int STAIR_COUNT = BrooklynTechNavigation.ALL_STAIRS.length;
+    private static final int SECONDS_PER_FLIGHT = (int) Math.round(BrooklynTechNavigation.STAIR_TIME_PER_FLOOR * 60);
+
+    // A period ends once everyone has arrived or this much time has gone by
+    private static final int MAX_TICKS_PER_PERIOD = 3600;
+
+    private final BuildingLayout layout;
+    private final int floors;
+    private final int stairCapacity;
+    private final int corridorCapacity;
+    private final int threads;
+    private final CongestionModel congestion;
+
+    // Corridors are indexed floor * 5 + wing, then flights (stair, bottom floor, direction)
+    private final int corridorCount;
+    private final int resourceCount;
+    private final int[] owner;
+    private final int[] occupancy;
+
+    // Per floor partition state; each array slot is only written by the thread handling that floor
+    private final List<List<Agent>> active = new ArrayList<>();
+    private final List<List<Agent>> incoming = new ArrayList<>();
+    private final List<Agent>[][] requests;
+    private IntList[][] releases;
+    private IntList[][] pendingReleases;
+    private final int[][] flightLoad;
+    private final int[][] busiestFlight;
+    private final int[] onFlight;
+    private final int[] arrivedOnFloor;
+
+    private int tick;
+
+    static final class Agent {
+        final int id;
+        final String name;
+        final List<String> rooms;
+
+        // Current trip: resources in order and the ticks each one takes
+        int[] legs;
+        int[] legTicks;
+        int leg;
+        int remaining;
+        int resource;
+        int partition;
+        int waitingSince;
+        boolean arrived;
+        int arrivalTick;
+        int waitedTicks;
+
+        Agent(int id, String name, List<String> rooms) {
+            this.id = id;
+            this.name = name;
+            this.rooms = rooms;
+        }
+    }
+
+    // Growable int array for release messages
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    static final class PeriodReport {
+        final int period;
+        int trips;
+        int late;
+        int unroutable;
+        long totalTripTicks;
+        int longestTrip;
+        long totalWaitTicks;
+        int ticks;
+
+        PeriodReport(int period) { this.period = period; }
+    }
+
+    static final class Report {
+        final List<PeriodReport> periods = new ArrayList<>();
+        final int[] stairPeak = new int[STAIR_COUNT];
+        final int[] flightPeak = new int[STAIR_COUNT];
+        final long[] stairTrips = new long[STAIR_COUNT];
+        long agentTicks;
+        long wallNanos;
+
+        int totalLate() {
+            int late = 0;
+            for (PeriodReport period : periods) late += period.late;
+            return late;
+        }
+
+        String format() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%-7s %6s %6s %10s %10s %10s%n", "Period", "trips", "late", "mean (s)", "max (s)", "wait (s)"));
+            for (PeriodReport p : periods) {
+                out.append(String.format("%-7s %6d %6d %10.1f %10d %10.1f%s%n", p.period + "->" + (p.period + 1),
+                        p.trips, p.late, p.trips == 0 ? 0 : (double) p.totalTripTicks / p.trips, p.longestTrip,
+                        p.trips == 0 ? 0 : (double) p.totalWaitTicks / p.trips,
+                        p.unroutable > 0 ? "  (" + p.unroutable + " unroutable)" : ""));
+            }
+            out.append(String.format("%nStairwell  trips  peak on stairs  busiest flight%n"));
+            for (int stair = 0; stair < STAIR_COUNT; stair++) {
+                out.append(String.format("%-9s %6d %15d %15d%n", BrooklynTechNavigation.STAIR_NAMES[stair],
+                        stairTrips[stair], stairPeak[stair], flightPeak[stair]));
+            }
+            out.append(String.format("%nLate arrivals: %d, simulated %d agent-ticks in %.2f s (%.1f M agent-ticks/s)",
+                    totalLate(), agentTicks, wallNanos / 1e9, agentTicks / (wallNanos / 1e3)));
+            return out.toString();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    PassingPeriodSimulator(BuildingLayout layout, int stairCapacity, int corridorCapacity, int threads,
+                           CongestionModel congestion) {
+        this.layout = layout;
+        this.floors = layout.getFloorCount();
+        this.stairCapacity = stairCapacity;
+        this.corridorCapacity = corridorCapacity;
+        this.threads = Math.max(1, Math.min(threads, floors));
+        this.congestion = congestion;
+
+        corridorCount = floors * WINGS.length();
+        resourceCount = corridorCount + STAIR_COUNT * floors * 2;
+        owner = new int[resourceCount];
+        for (int r = 0; r < resourceCount; r++) {
+            owner[r] = r < corridorCount ? r / WINGS.length() : (r - corridorCount) / 2 % floors;
+        }
+        occupancy = new int[resourceCount];
+
+        requests = new List[floors][floors];
+        releases = new IntList[floors][floors];
+        pendingReleases = new IntList[floors][floors];
+        for (int f = 0; f < floors; f++) {
+            active.add(new ArrayList<>());
+            incoming.add(new ArrayList<>());
+            for (int g = 0; g < floors; g++) {
+                requests[f][g] = new ArrayList<>();
+                releases[f][g] = new IntList();
+                pendingReleases[f][g] = new IntList();
+            }
+        }
+        flightLoad = new int[floors][STAIR_COUNT];
+        busiestFlight = new int[floors][STAIR_COUNT];
+        onFlight = new int[resourceCount - corridorCount];
+        arrivedOnFloor = new int[floors];
+    }
+
+    private int corridor(int floor, String room) {
+        String wing = BuildingLayout.wingOf(room);
+        int side = wing != null ? WINGS.indexOf(wing.charAt(wing.length() - 1)) : WINGS.indexOf('C');
+        return floor * WINGS.length() + side;
+    }
+
+    private int flight(int stair, int bottomFloor, boolean up) {
+        return corridorCount + ((stair * floors + bottomFloor) * 2 + (up ? 0 : 1));
+    }
+
+    private boolean isFlight(int resource) {
+        return resource >= corridorCount;
+    }
+
+    private int stairOf(int resource) {
+        return (resource - corridorCount) / 2 / floors;
+    }
+
+    private static int walkTicks(double rooms) {
+        return Math.max(1, (int) Math.ceil(RoutingKernel.walkMinutes(rooms) * 60));
+    }
+
+    // Plans the legs of one trip; returns the staircase used, -1 for same floor, -2 if no staircase is open
+    private int plan(Agent agent, String from, String to) {
+        BrooklynTechNavigation.Coordinate fromCoord = layout.coordinateOf(from);
+        BrooklynTechNavigation.Coordinate toCoord = layout.coordinateOf(to);
+        int fromFloor = BrooklynTechNavigation.getFloorFromRoom(from);
+        int toFloor = BrooklynTechNavigation.getFloorFromRoom(to);
+
+        if (fromFloor == toFloor) {
+            agent.legs = new int[] {corridor(toFloor, to)};
+            agent.legTicks = new int[] {walkTicks(fromCoord.distanceTo(toCoord))};
+            return -1;
+        }
+
+        int stair;
+        if (congestion != null) {
+            stair = congestion.chooseStair(layout, from, to);
+            if (stair >= 0) congestion.record(fromFloor, toFloor, stair);
+        } else {
+            BrooklynTechNavigation.Coordinate best =
+                    BrooklynTechNavigation.findBestStaircase(layout, fromCoord, toCoord, fromFloor, toFloor);
+            stair = Arrays.asList(BrooklynTechNavigation.ALL_STAIRS).indexOf(best);
+        }
+        if (stair < 0) {
+            return -2;
+        }
+
+        BrooklynTechNavigation.Coordinate stairCoord = BrooklynTechNavigation.ALL_STAIRS[stair];
+        int flights = Math.abs(toFloor - fromFloor);
+        boolean up = toFloor > fromFloor;
+        agent.legs = new int[flights + 2];
+        agent.legTicks = new int[flights + 2];
+
+        agent.legs[0] = corridor(fromFloor, from);
+        agent.legTicks[0] = walkTicks(fromCoord.distanceTo(stairCoord));
+        for (int i = 0; i < flights; i++) {
+            int bottom = up ? fromFloor + i : fromFloor - i - 1;
+            agent.legs[i + 1] = flight(stair, bottom, up);
+            agent.legTicks[i + 1] = SECONDS_PER_FLIGHT;
+        }
+        agent.legs[flights + 1] = corridor(toFloor, to);
+        agent.legTicks[flights + 1] = walkTicks(stairCoord.distanceTo(toCoord));
+        return stair;
+    }
+
+    /** Simulates every passing period of the schedule and reports the whole day. */
+    Report run(List<Agent> agents) {
+        Report report = new Report();
+        int periods = 0;
+        for (Agent agent : agents) {
+            periods = Math.max(periods, agent.rooms.size());
+        }
+
+        ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        long start = System.nanoTime();
+        try {
+            for (int period = 1; period < periods; period++) {
+                report.periods.add(simulatePeriod(agents, period, report, pool));
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+        report.wallNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private PeriodReport simulatePeriod(List<Agent> agents, int period, Report report, ExecutorService pool) {
+        PeriodReport result = new PeriodReport(period);
+        Arrays.fill(occupancy, 0);
+        if (congestion != null) congestion.startPassingPeriod();
+
+        List<Agent> travelling = new ArrayList<>();
+        for (Agent agent : agents) {
+            if (agent.rooms.size() <= period) continue;
+            String from = agent.rooms.get(period - 1);
+            String to = agent.rooms.get(period);
+            if (from.equals(to)) continue;
+
+            int stair = plan(agent, from, to);
+            if (stair == -2) {
+                result.unroutable++;
+                continue;
+            }
+            if (stair >= 0) report.stairTrips[stair]++;
+
+            agent.leg = -1;
+            agent.remaining = 0;
+            agent.resource = -1;
+            agent.partition = BrooklynTechNavigation.getFloorFromRoom(from);
+            agent.waitingSince = -1;
+            agent.arrived = false;
+            agent.waitedTicks = 0;
+            active.get(agent.partition).add(agent);
+            travelling.add(agent);
+        }
+
+        int arrived = 0;
+        for (tick = 0; arrived < travelling.size() && tick < MAX_TICKS_PER_PERIOD; tick++) {
+            runPhase(pool, this::advance);
+            runPhase(pool, this::admit);
+
+            // Swap release buffers; this tick's releases are applied next tick
+            IntList[][] drained = pendingReleases;
+            pendingReleases = releases;
+            releases = drained;
+
+            for (int stair = 0; stair < STAIR_COUNT; stair++) {
+                int onStairs = 0;
+                for (int f = 0; f < floors; f++) {
+                    onStairs += flightLoad[f][stair];
+                    report.flightPeak[stair] = Math.max(report.flightPeak[stair], busiestFlight[f][stair]);
+                }
+                report.stairPeak[stair] = Math.max(report.stairPeak[stair], onStairs);
+            }
+            for (int f = 0; f < floors; f++) {
+                arrived += arrivedOnFloor[f];
+                arrivedOnFloor[f] = 0;
+                report.agentTicks += active.get(f).size();
+            }
+        }
+        result.ticks = tick;
+
+        for (Agent agent : travelling) {
+            result.trips++;
+            int tripTicks = agent.arrived ? agent.arrivalTick : MAX_TICKS_PER_PERIOD;
+            result.totalTripTicks += tripTicks;
+            result.longestTrip = Math.max(result.longestTrip, tripTicks);
+            result.totalWaitTicks += agent.waitedTicks;
+            if (tripTicks > PASSING_PERIOD_SECONDS) result.late++;
+        }
+        for (int f = 0; f < floors; f++) {
+            active.get(f).clear();
+            incoming.get(f).clear();
+            for (int g = 0; g < floors; g++) {
+                requests[f][g].clear();
+                releases[f][g].size = 0;
+                pendingReleases[f][g].size = 0;
+            }
+        }
+        return result;
+    }
+
+    private interface FloorTask {
+        void run(int floor);
+    }
+
+    // Runs one phase for every floor, spread over the pool, and waits for all of them
+    private void runPhase(ExecutorService pool, FloorTask task) {
+        if (pool == null) {
+            for (int f = 0; f < floors; f++) task.run(f);
+            return;
+        }
+        List<Callable<Void>> work = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            work.add(() -> {
+                for (int f = first; f < floors; f += threads) task.run(f);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> done : pool.invokeAll(work)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed on tick " + tick, e.getCause());
+        }
+    }
+
+    // Phase one: move students along their current leg and queue the ones ready for the next
+    private void advance(int floor) {
+        List<Agent> list = active.get(floor);
+        list.addAll(incoming.get(floor));
+        incoming.get(floor).clear();
+        int[] load = flightLoad[floor];
+        int[] busiest = busiestFlight[floor];
+        Arrays.fill(load, 0);
+        Arrays.fill(busiest, 0);
+
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            Agent agent = list.get(i);
+            // Students admitted onto another floor's corridor or flight now belong to that floor
+            if (agent.partition != floor) continue;
+
+            if (agent.remaining > 0) agent.remaining--;
+            if (agent.remaining == 0) {
+                if (agent.leg == agent.legs.length - 1) {
+                    agent.arrived = true;
+                    agent.arrivalTick = tick + 1;
+                    releases[floor][owner[agent.resource]].add(agent.resource);
+                    arrivedOnFloor[floor]++;
+                    continue;
+                }
+                if (agent.waitingSince < 0) agent.waitingSince = tick;
+                requests[floor][owner[agent.legs[agent.leg + 1]]].add(agent);
+            }
+            if (agent.resource >= 0 && isFlight(agent.resource)) {
+                // Students on a flight always belong to the floor at its bottom, so the count is exact
+                int stair = stairOf(agent.resource);
+                load[stair]++;
+                busiest[stair] = Math.max(busiest[stair], ++onFlight[agent.resource - corridorCount]);
+            }
+            list.set(kept++, agent);
+        }
+        list.subList(kept, list.size()).clear();
+        
+        // Reset only this floor's flights for the next tick
+        for (int stair = 0; stair < STAIR_COUNT; stair++) {
+            onFlight[flight(stair, floor, true) - corridorCount] = 0;
+            onFlight[flight(stair, floor, false) - corridorCount] = 0;
+        }
+    }
+
+    // Phase two: apply last tick's releases, then admit waiting students in the order they started waiting
+    private void admit(int floor) {
+        for (int source = 0; source < floors; source++) {
+            IntList released = pendingReleases[source][floor];
+            for (int i = 0; i < released.size; i++) {
+                occupancy[released.values[i]]--;
+            }
+            released.size = 0;
+        }
+
+        List<Agent> waiting = new ArrayList<>();
+        for (int source = 0; source < floors; source++) {
+            waiting.addAll(requests[source][floor]);
+            requests[source][floor].clear();
+        }
+        waiting.sort(Comparator.comparingInt((Agent a) -> a.waitingSince).thenComparingInt(a -> a.id));
+
+        for (Agent agent : waiting) {
+            int next = agent.legs[agent.leg + 1];
+            boolean offStairs = agent.resource >= 0 && isFlight(agent.resource) && !isFlight(next);
+            int capacity = isFlight(next) ? stairCapacity : corridorCapacity;
+            if (!offStairs && occupancy[next] >= capacity) continue;
+
+            occupancy[next]++;
+            if (agent.resource >= 0) {
+                releases[floor][owner[agent.resource]].add(agent.resource);
+            }
+            agent.resource = next;
+            agent.leg++;
+            agent.remaining = agent.legTicks[agent.leg];
+            agent.waitedTicks += tick - agent.waitingSince;
+            agent.waitingSince = -1;
+            if (agent.partition != floor) {
+                agent.partition = floor;
+                incoming.get(floor).add(agent);
+            }
+        }
+    }
+
+    /** Random schedule: every student visits {@code periods} rooms, drawn from the whole building. */
+    static List<Agent> randomSchedule(BuildingLayout layout, int students, int periods, Random random) {
+        List<String> rooms = new ArrayList<>(layout.getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+        List<Agent> agents = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            List<String> day = new ArrayList<>(periods);
+            for (int p = 0; p < periods; p++) {
+                day.add(rooms.get(random.nextInt(rooms.size())));
+            }
+            agents.add(new Agent(i, "student" + i, day));
+        }
+        return agents;
+    }
+
+    /** Reads name,room,room,... lines; rooms are resolved like user input. */
+    static List<Agent> readSchedule(BuildingLayout layout, Path file) throws IOException {
+        List<Agent> agents = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] fields = line.split(",");
+            List<String> day = new ArrayList<>(fields.length - 1);
+            for (int i = 1; i < fields.length; i++) {
+                String room = layout.getRoomIndex().resolve(fields[i].trim());
+                if (room == null) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": unknown room '" + fields[i].trim() + "'");
+                }
+                day.add(room);
+            }
+            agents.add(new Agent(agents.size(), fields[0].trim(), day));
+        }
+        return agents;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int students = 6000;
+        int periods = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String schedule = null;
+        boolean congestionAware = false;
+        for (String arg : args) {
+            if (arg.startsWith("--students=")) students = Integer.parseInt(arg.substring("--students=".length()));
+            else if (arg.startsWith("--periods=")) periods = Integer.parseInt(arg.substring("--periods=".length()));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--schedule=")) schedule = arg.substring("--schedule=".length());
+            else if (arg.equals("--congestion")) congestionAware = true;
+        }
+
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        List<Agent> agents = schedule != null
+                ? readSchedule(layout, Paths.get(schedule))
+                : randomSchedule(layout, students, periods, new Random(42));
+        CongestionModel congestion = congestionAware
+                ? new CongestionModel(BrooklynTechNavigation.PASSING_PERIOD_MINUTES, BrooklynTechNavigation.STAIR_CAPACITY,
+                        BrooklynTechNavigation.HALLWAY_CAPACITY, layout.getFloorCount())
+                : null;
+
+        PassingPeriodSimulator simulator = new PassingPeriodSimulator(layout, STAIR_CAPACITY, CORRIDOR_CAPACITY,
+                threads, congestion);
+        System.out.println("=== Passing period simulation ===");
+        System.out.printf("Students: %d, threads: %d, routing: %s, flight capacity %d, corridor capacity %d%n%n",
+                agents.size(), simulator.threads, congestionAware ? "congestion-aware" : "geometric",
+                STAIR_CAPACITY, CORRIDOR_CAPACITY);
+        System.out.println(simulator.run(agents).format());
+    }
+}
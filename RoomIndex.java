@@ -0,0 +1,144 @@
+import java.util.*;
+
+/**
+ * Prebuilt lookup index from user input to canonical room IDs.
+ *
+ * Every room ID and special area name is case-folded once at build time, so
+ * resolving input is a single hash lookup. The same keys are stored in a trie
+ * that answers "did you mean" queries by edit distance, pruning every branch
+ * whose distance already exceeds the limit instead of scanning all rooms.
+ */
+final class RoomIndex {
+
+    private static final int DEFAULT_MAX_DISTANCE = 2;
+    private static final int DEFAULT_SUGGESTION_LIMIT = 5;
+
+    private final Map<String, String> canonicalByInput = new HashMap<>();
+    private final Map<String, String> displayNames = new HashMap<>();
+    private final TrieNode root = new TrieNode();
+
+    private static class TrieNode {
+        final Map<Character, TrieNode> children = new TreeMap<>();
+        String label;       // Text shown for a suggestion ending here
+        String canonical;   // Room ID the suggestion resolves to
+    }
+
+    private static class Suggestion {
+        final String label;
+        final String canonical;
+        final int distance;
+
+        Suggestion(String label, String canonical, int distance) {
+            this.label = label;
+            this.canonical = canonical;
+            this.distance = distance;
+        }
+    }
+
+    static RoomIndex build(Map<String, BrooklynTechNavigation.Coordinate> rooms, Map<String, String> specialAreas) {
+        RoomIndex index = new RoomIndex();
+
+        for (String room : rooms.keySet()) {
+            index.add(room, room, room);
+            index.displayNames.put(room, "Room " + room);
+        }
+
+        for (Map.Entry<String, String> entry : specialAreas.entrySet()) {
+            String name = entry.getKey();
+            String room = entry.getValue();
+            String label = name.substring(0, 1).toUpperCase() + name.substring(1);
+            index.add(name, label, room);
+            index.displayNames.put(room, label + " (Floor " + BrooklynTechNavigation.getFloorFromRoom(room) + ")");
+        }
+
+        return index;
+    }
+
+    private void add(String key, String label, String canonical) {
+        String folded = fold(key);
+        canonicalByInput.put(folded, canonical);
+
+        TrieNode node = root;
+        for (int i = 0; i < folded.length(); i++) {
+            node = node.children.computeIfAbsent(folded.charAt(i), c -> new TrieNode());
+        }
+        node.label = label;
+        node.canonical = canonical;
+    }
+
+    private static String fold(String input) {
+        return input.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Canonical room ID for user input, or null if nothing matches exactly
+    String resolve(String input) {
+        return canonicalByInput.get(fold(input));
+    }
+
+    String displayName(String room) {
+        String name = displayNames.get(room);
+        return name != null ? name : "Room " + room;
+    }
+
+    List<String> suggest(String input) {
+        return suggest(input, DEFAULT_MAX_DISTANCE, DEFAULT_SUGGESTION_LIMIT);
+    }
+
+    /**
+     * Returns up to {@code limit} suggestions within {@code maxDistance} edits of
+     * the input, closest first. Each room appears at most once even if several
+     * of its names match.
+     */
+    List<String> suggest(String input, int maxDistance, int limit) {
+        String word = fold(input);
+        int[] firstRow = new int[word.length() + 1];
+        for (int i = 0; i < firstRow.length; i++) {
+            firstRow[i] = i;
+        }
+
+        Map<String, Suggestion> best = new HashMap<>();
+        for (Map.Entry<Character, TrieNode> child : root.children.entrySet()) {
+            collect(child.getValue(), child.getKey(), word, firstRow, maxDistance, best);
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(best.values());
+        ranked.sort(Comparator.comparingInt((Suggestion s) -> s.distance).thenComparing(s -> s.label));
+
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            labels.add(ranked.get(i).label);
+        }
+        return labels;
+    }
+
+    // Levenshtein walk: each trie edge adds one row to the edit distance table
+    private void collect(TrieNode node, char letter, String word, int[] previousRow,
+                         int maxDistance, Map<String, Suggestion> best) {
+        int[] row = new int[previousRow.length];
+        row[0] = previousRow[0] + 1;
+        int rowMin = row[0];
+
+        for (int i = 1; i < row.length; i++) {
+            int replace = previousRow[i - 1] + (word.charAt(i - 1) == letter ? 0 : 1);
+            row[i] = Math.min(replace, Math.min(row[i - 1] + 1, previousRow[i] + 1));
+            rowMin = Math.min(rowMin, row[i]);
+        }
+
+        int distance = row[row.length - 1];
+        if (node.canonical != null && distance <= maxDistance) {
+            Suggestion current = best.get(node.canonical);
+            if (current == null || distance < current.distance) {
+                best.put(node.canonical, new Suggestion(node.label, node.canonical, distance));
+            }
+        }
+
+        // No completion of this prefix can get back under the limit
+        if (rowMin > maxDistance) {
+            return;
+        }
+
+        for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+            collect(child.getValue(), child.getKey(), word, row, maxDistance, best);
+        }
+    }
+}
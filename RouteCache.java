@@ -0,0 +1,148 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of routes keyed by the (from, to) pair of the
+ * snapshot's RoutingKernel room IDs, from * roomCount + to, so a lookup hashes
+ * one int instead of building and hashing a string key. Each entry remembers
+ * the layout version it was routed on, and lookups from a different version
+ * miss, so a query that finishes on an old snapshot after a layout swap cannot
+ * hand its route to queries on the new one.
+ *
+ * Entries are spread over independently locked segments so concurrent lookups
+ * for different pairs rarely contend. Each segment is a LinkedHashMap kept in
+ * access order (LRU) or insertion order (FIFO) and evicts its eldest entry once
+ * it holds its share of the capacity, so eviction order is exact within a
+ * segment and approximate across the whole cache.
+ */
+public final class RouteCache {
+
+    public enum EvictionPolicy { LRU, FIFO }
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_ENTRIES_PER_SEGMENT = 256;
+
+    private final Segment[] segments;
+    private final int maxEntries;
+    private final EvictionPolicy policy;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry {
+        final long layoutVersion;
+        final BrooklynTechNavigation.NavigationResult result;
+
+        Entry(long layoutVersion, BrooklynTechNavigation.NavigationResult result) {
+            this.layoutVersion = layoutVersion;
+            this.result = result;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Integer, Entry> {
+        // Never serialized; LinkedHashMap is Serializable, so the lint wants one anyway
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity, boolean accessOrder) {
+            super(16, 0.75f, accessOrder);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public RouteCache(int maxEntries, EvictionPolicy policy) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.policy = policy;
+
+        // Small caches keep one segment so eviction order stays exact
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxEntries / MIN_ENTRIES_PER_SEGMENT));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // Spread the remainder so the segment capacities add up to maxEntries
+            int capacity = maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0);
+            segments[i] = new Segment(capacity, policy == EvictionPolicy.LRU);
+        }
+    }
+
+    /** Cache key of a route between two rooms by RoutingKernel ID. */
+    public static int key(RoutingKernel kernel, int from, int to) {
+        return from * kernel.roomCount() + to;
+    }
+
+    // Neighbouring pairs differ in their low bits, which the multiply spreads to the high ones
+    private Segment segmentFor(int key) {
+        int hash = key * 0x9E3779B9;
+        return segments[(hash >>> 16) % segments.length];
+    }
+
+    public BrooklynTechNavigation.NavigationResult get(long layoutVersion, int key) {
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(key);
+        }
+        if (entry != null && entry.layoutVersion == layoutVersion) {
+            hits.increment();
+            return entry.result;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(long layoutVersion, int key, BrooklynTechNavigation.NavigationResult result) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry existing = segment.get(key);
+            // Never replace a route for a newer layout with one from an older snapshot
+            if (existing == null || existing.layoutVersion <= layoutVersion) {
+                segment.put(key, new Entry(layoutVersion, result));
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+    public EvictionPolicy getPolicy() { return policy; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+
+    public String statsReport() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        double hitRate = total == 0 ? 0 : 100.0 * hitCount / total;
+        return String.format("Route cache (%s, %d max): %d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                policy, maxEntries, size(), hitCount, getMisses(), hitRate, getEvictions());
+    }
+}
@@ -0,0 +1,155 @@
+import java.util.*;
+
+/**
+ * Precomputed all-pairs route table for one {@link BuildingLayout} snapshot,
+ * built on first use and held by the snapshot like its RoutingKernel.
+ *
+ * Every (from, to) pair of rooms, indexed by the snapshot's RoutingKernel room
+ * IDs, gets one byte for its staircase and one double for its time, so the
+ * table is about nine bytes per pair: under 3 MB for Brooklyn Tech and under
+ * 10 MB at MAX_ROOMS. A hit builds its NavigationResult on the spot from
+ * walking steps shared by every route through the same staircase, so nothing
+ * a caller renders is kept by the table. Buildings above MAX_ROOMS rooms are
+ * refused rather than filling the heap.
+ */
+public final class RouteTable {
+
+    // About 9 MB of routes; Brooklyn Tech has around 500 rooms
+    static final int MAX_ROOMS = 1024;
+
+    private static final int STAIR_COUNT = BrooklynTechNavigation.ALL_STAIRS.length;
+
+    // Stair byte and time per pair; step object with its reference in the shared arrays
+    private static final long BYTES_PER_PAIR = 1 + 8;
+    private static final long BYTES_PER_STEP = 40 + 4;
+
+    private final BuildingLayout layout;
+    private final RoutingKernel kernel;
+
+    // Staircase per pair as RoutingKernel.bestStair returns it; NO_STAIRS for the same room
+    private final byte[] stairs;
+    private final double[] times;
+
+    // Steps shared between routes, by room ID and staircase
+    private final BrooklynTechNavigation.RouteStep[] toStair;
+    private final BrooklynTechNavigation.RouteStep[] fromStair;
+    private final BrooklynTechNavigation.RouteStep[] special;
+    private final long steps;
+    private final long buildTimeNanos;
+
+    private RouteTable(BuildingLayout layout, RoutingKernel kernel, byte[] stairs, double[] times,
+                       BrooklynTechNavigation.RouteStep[] toStair, BrooklynTechNavigation.RouteStep[] fromStair,
+                       BrooklynTechNavigation.RouteStep[] special, long steps, long buildTimeNanos) {
+        this.layout = layout;
+        this.kernel = kernel;
+        this.stairs = stairs;
+        this.times = times;
+        this.toStair = toStair;
+        this.fromStair = fromStair;
+        this.special = special;
+        this.steps = steps;
+        this.buildTimeNanos = buildTimeNanos;
+    }
+
+    // Refuses buildings whose table would not fit in an array or a reasonable heap
+    static void checkSize(BuildingLayout layout) {
+        int n = layout.getRoomCoordinates().size();
+        if (n > MAX_ROOMS) {
+            throw new IllegalStateException("Precomputed routes support at most " + MAX_ROOMS
+                    + " rooms; this layout has " + n + " (" + (long) n * n + " pairs)");
+        }
+    }
+
+    // Fill the table from one layout snapshot, timing routes exactly as calculateRoute does
+    static RouteTable build(BuildingLayout layout) {
+        checkSize(layout);
+        long start = System.nanoTime();
+
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int n = kernel.roomCount();
+        BrooklynTechNavigation.RouteStep[] toStair = new BrooklynTechNavigation.RouteStep[n * STAIR_COUNT];
+        BrooklynTechNavigation.RouteStep[] fromStair = new BrooklynTechNavigation.RouteStep[n * STAIR_COUNT];
+        BrooklynTechNavigation.RouteStep[] special = new BrooklynTechNavigation.RouteStep[n];
+        long stepCount = 0;
+        for (int id = 0; id < n; id++) {
+            String room = kernel.room(id);
+            BrooklynTechNavigation.Coordinate coord = layout.coordinateOf(room);
+            for (int stair = 0; stair < STAIR_COUNT; stair++) {
+                BrooklynTechNavigation.Coordinate stairCoord = BrooklynTechNavigation.ALL_STAIRS[stair];
+                toStair[id * STAIR_COUNT + stair] = BrooklynTechNavigation.RouteStep.walk(
+                        BrooklynTechNavigation.RouteStep.Kind.WALK_TO_STAIRS, coord, stairCoord, null);
+                fromStair[id * STAIR_COUNT + stair] = BrooklynTechNavigation.RouteStep.walk(
+                        BrooklynTechNavigation.RouteStep.Kind.WALK_TO_ROOM, stairCoord, coord, room);
+                stepCount += 2;
+            }
+            String instructions = BrooklynTechNavigation.getSpecialAccessInstructions(room);
+            if (!instructions.isEmpty()) {
+                special[id] = BrooklynTechNavigation.RouteStep.specialAccess(instructions);
+                stepCount++;
+            }
+        }
+
+        // n is at most MAX_ROOMS, so the pair count fits in an int
+        int pairs = Math.toIntExact((long) n * n);
+        byte[] stairs = new byte[pairs];
+        double[] times = new double[pairs];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                int pair = from * n + to;
+                int stair = from == to ? RoutingKernel.NO_STAIRS : kernel.bestStair(from, to);
+                stairs[pair] = (byte) stair;
+                if (stair != RoutingKernel.NO_STAIRS) {
+                    times[pair] = kernel.travelTime(from, to, stair);
+                }
+            }
+        }
+
+        return new RouteTable(layout, kernel, stairs, times, toStair, fromStair, special, stepCount,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the precomputed route between two rooms of the table's snapshot,
+     * by RoutingKernel ID, or null for the same room or when no open staircase
+     * connects their floors.
+     */
+    public BrooklynTechNavigation.NavigationResult lookup(int from, int to) {
+        int pair = from * kernel.roomCount() + to;
+        int stair = stairs[pair];
+        if (stair == RoutingKernel.NO_STAIRS) {
+            return null;
+        }
+
+        String toRoom = kernel.room(to);
+        List<BrooklynTechNavigation.RouteStep> steps;
+        if (stair == RoutingKernel.SAME_FLOOR) {
+            steps = List.of(BrooklynTechNavigation.RouteStep.walk(BrooklynTechNavigation.RouteStep.Kind.WALK_DIRECTLY,
+                    layout.coordinateOf(kernel.room(from)), layout.coordinateOf(toRoom), toRoom));
+        } else {
+            BrooklynTechNavigation.RouteStep climb = BrooklynTechNavigation.RouteStep.stairs(kernel.floor(from), kernel.floor(to));
+            BrooklynTechNavigation.RouteStep up = toStair[from * STAIR_COUNT + stair];
+            BrooklynTechNavigation.RouteStep down = fromStair[to * STAIR_COUNT + stair];
+            steps = special[to] == null ? List.of(up, climb, down) : List.of(up, climb, down, special[to]);
+        }
+        return new BrooklynTechNavigation.NavigationResult(layout, kernel.room(from), toRoom, steps, times[pair]);
+    }
+
+    // Same as lookup by ID, for normalized room names; null for rooms outside the snapshot
+    public BrooklynTechNavigation.NavigationResult lookup(String from, String to) {
+        int fromId = kernel.idOf(from);
+        int toId = kernel.idOf(to);
+        return fromId < 0 || toId < 0 ? null : lookup(fromId, toId);
+    }
+
+    public int getRoomCount() { return kernel.roomCount(); }
+
+    /** Approximate heap the table retains in bytes: the pair arrays and the shared steps. */
+    public long estimatedBytes() {
+        return 4 * 16L + BYTES_PER_PAIR * stairs.length + BYTES_PER_STEP * steps + 4L * special.length;
+    }
+
+    public String memoryReport() {
+        return String.format("Route table: %d rooms, %d pairs, ~%.2f MB, built in %.1f ms",
+                kernel.roomCount(), stairs.length, estimatedBytes() / (1024.0 * 1024.0), buildTimeNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.*;
+
+/**
+ * Allocation-free routing core for one {@link BuildingLayout} snapshot.
+ *
+ * Rooms are interned to dense int IDs with their floor and coordinates in
+ * parallel primitive arrays, and each floor has an array of the open
+ * staircases that serve it, in ALL_STAIRS order. Choosing a staircase and
+ * timing a route then only reads arrays; nothing is allocated until the
+ * caller builds a NavigationResult from the answer.
+ */
+final class RoutingKernel {
+
+    // bestStair results that are not a staircase index
+    static final int SAME_FLOOR = -1;
+    static final int NO_STAIRS = -2;
+
+    private static final int STAIR_COUNT = BrooklynTechNavigation.ALL_STAIRS.length;
+
+    private final String[] rooms;
+    private final Map<String, Integer> ids;
+    private final int[] floor;
+    private final int[] x;
+    private final int[] y;
+    private final int[] stairX;
+    private final int[] stairY;
+
+    // Open staircases with an entrance on each floor, and the same as flags [floor * STAIR_COUNT + stair]
+    private final int[][] candidates;
+    private final boolean[] serves;
+
+    private RoutingKernel(String[] rooms, Map<String, Integer> ids, int[] floor, int[] x, int[] y,
+                          int[] stairX, int[] stairY, int[][] candidates, boolean[] serves) {
+        this.rooms = rooms;
+        this.ids = ids;
+        this.floor = floor;
+        this.x = x;
+        this.y = y;
+        this.stairX = stairX;
+        this.stairY = stairY;
+        this.candidates = candidates;
+        this.serves = serves;
+    }
+
+    static RoutingKernel build(BuildingLayout layout) {
+        String[] rooms = layout.getRoomCoordinates().keySet().toArray(new String[0]);
+        Arrays.sort(rooms);
+
+        Map<String, Integer> ids = new HashMap<>();
+        int[] floor = new int[rooms.length];
+        int[] x = new int[rooms.length];
+        int[] y = new int[rooms.length];
+        int floorCount = 0;
+        for (int id = 0; id < rooms.length; id++) {
+            BrooklynTechNavigation.Coordinate coord = layout.coordinateOf(rooms[id]);
+            ids.put(rooms[id], id);
+            floor[id] = BrooklynTechNavigation.getFloorFromRoom(rooms[id]);
+            x[id] = coord.x;
+            y[id] = coord.y;
+            floorCount = Math.max(floorCount, floor[id] + 1);
+        }
+
+        int[] stairX = new int[STAIR_COUNT];
+        int[] stairY = new int[STAIR_COUNT];
+        for (int stair = 0; stair < STAIR_COUNT; stair++) {
+            stairX[stair] = BrooklynTechNavigation.ALL_STAIRS[stair].x;
+            stairY[stair] = BrooklynTechNavigation.ALL_STAIRS[stair].y;
+        }
+
+        int[][] candidates = new int[floorCount][];
+        boolean[] serves = new boolean[floorCount * STAIR_COUNT];
+        for (int f = 0; f < floorCount; f++) {
+            // Corner staircases reach every floor; middle ones skip floor 7
+            int available = BrooklynTechNavigation.middleStairsServe(f)
+                    ? STAIR_COUNT : BrooklynTechNavigation.CORNER_STAIRS.length;
+            int[] open = new int[available];
+            int count = 0;
+            for (int stair = 0; stair < available; stair++) {
+                if (layout.isStairClosed(stair)) continue;
+                open[count++] = stair;
+                serves[f * STAIR_COUNT + stair] = true;
+            }
+            candidates[f] = Arrays.copyOf(open, count);
+        }
+
+        return new RoutingKernel(rooms, ids, floor, x, y, stairX, stairY, candidates, serves);
+    }
+
+    // Dense ID of a normalized room, or -1
+    int idOf(String room) {
+        Integer id = ids.get(room);
+        return id != null ? id : -1;
+    }
+
+    String room(int id) { return rooms[id]; }
+
+    int floor(int id) { return floor[id]; }
+
+    int roomCount() { return rooms.length; }
+
+    int x(int id) { return x[id]; }
+
+    int y(int id) { return y[id]; }
+
+    int floorCount() { return candidates.length; }
+
+    // Open staircases with an entrance on the floor, in ALL_STAIRS order; callers must not modify it
+    int[] openStairs(int floor) { return candidates[floor]; }
+
+    boolean stairServes(int stair, int floor) { return serves[floor * STAIR_COUNT + stair]; }
+
+    private static double distance(int x1, int y1, int x2, int y2) {
+        int dx = x1 - x2;
+        int dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Staircase index into ALL_STAIRS that minimizes walking distance, the first
+     * one on ties like findBestStaircase; SAME_FLOOR when no staircase is needed
+     * and NO_STAIRS when none open serves both floors.
+     */
+    int bestStair(int from, int to) {
+        int fromFloor = floor[from];
+        int toFloor = floor[to];
+        if (fromFloor == toFloor) {
+            return SAME_FLOOR;
+        }
+
+        int best = NO_STAIRS;
+        double minTotalDistance = Double.POSITIVE_INFINITY;
+        int[] open = candidates[fromFloor];
+        int toBase = toFloor * STAIR_COUNT;
+        for (int stair : open) {
+            if (!serves[toBase + stair]) continue;
+            double totalDistance = distance(x[from], y[from], stairX[stair], stairY[stair])
+                    + distance(stairX[stair], stairY[stair], x[to], y[to]);
+            if (totalDistance < minTotalDistance) {
+                minTotalDistance = totalDistance;
+                best = stair;
+            }
+        }
+        return best;
+    }
+
+    // Walking time in minutes through a staircase, or directly for SAME_FLOOR
+    double travelTime(int from, int to, int stair) {
+        if (stair < 0) {
+            return walkMinutes(distance(x[from], y[from], x[to], y[to]));
+        }
+        return travelMinutes(distance(x[from], y[from], stairX[stair], stairY[stair]),
+                Math.abs(floor[to] - floor[from]), distance(stairX[stair], stairY[stair], x[to], y[to]));
+    }
+
+    // Minutes to walk a distance in room units
+    static double walkMinutes(double distance) {
+        return distance * BrooklynTechNavigation.FEET_PER_ROOM / BrooklynTechNavigation.WALKING_SPEED_FEET_PER_MINUTE;
+    }
+
+    /**
+     * Minutes for a route through one staircase, from the walks to and from it
+     * in room units and the floors climbed. Every router times its routes here,
+     * so they agree to the last bit.
+     */
+    static double travelMinutes(double toStair, int floors, double fromStair) {
+        double totalTime = walkMinutes(toStair);
+        totalTime += floors * BrooklynTechNavigation.STAIR_TIME_PER_FLOOR;
+        totalTime += walkMinutes(fromStair);
+        return totalTime;
+    }
+}
@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Charts how both engines grow with the building: generated campuses from
+ * Brooklyn Tech's nine floors up to a thousand, each in both layout models.
+ * For every size it reports the time to compile and load the layout, the heap
+ * each engine holds once built, and the latency of a query between random
+ * rooms: getDirections on the room-position model, Dijkstra and A* on the
+ * corridor graph.
+ *
+ * Heap figures are the used heap after a full GC with the engine held, minus
+ * the same without it, so they are approximate on a busy JVM. Times are for
+ * the first build of each size, cold JIT included.
+ *
+ * Usage: java ScalingBenchmark [floors,floors,...] [--csv=file]
+ */
+public class ScalingBenchmark {
+
+    private static final int[] DEFAULT_FLOORS = {9, 30, 100, 300, 1000};
+
+    // Enough graph searches to time the smallest building well without taking minutes on the largest
+    private static final long SEARCH_BUDGET = 20_000_000;
+
+    // Results of every timed loop, printed so none of them can be optimized away
+    private static long checksum;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_FLOORS;
+        Path csv = null;
+        for (String arg : args) {
+            if (arg.startsWith("--csv=")) {
+                csv = Path.of(arg.substring("--csv=".length()));
+            } else {
+                sizes = Arrays.stream(arg.split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+        }
+
+        System.out.println("=== Scaling with building size ===");
+        System.out.printf("%6s %8s %8s %9s %9s %8s %8s %9s %9s %10s %10s %10s%n",
+                "floors", "rooms", "nodes", "compile", "layout", "kernel", "graph",
+                "layoutMB", "graphMB", "directions", "dijkstra", "A*");
+        System.out.printf("%6s %8s %8s %9s %9s %8s %8s %9s %9s %10s %10s %10s%n",
+                "", "", "", "ms", "ms", "ms", "ms", "", "", "us", "us", "us");
+
+        List<String> rows = new ArrayList<>();
+        rows.add("floors,rooms,nodes,compileMs,layoutMs,kernelMs,graphMs,layoutBytes,graphBytes,"
+                + "directionsUs,dijkstraUs,aStarUs");
+        BuildingLayout original = BrooklynTechNavigation.currentLayout();
+        for (int floors : sizes) {
+            rows.add(measure(floors));
+            // Lets the generated building go before the next size is measured
+            BrooklynTechNavigation.publishLayout(original);
+        }
+        System.out.println("(checksum " + checksum + ")");
+
+        if (csv != null) {
+            Files.write(csv, rows);
+            System.out.println("Wrote " + csv);
+        }
+    }
+
+    private static String measure(int floors) {
+        Random random = new Random(42);
+
+        // Text to binary, both models
+        long start = System.nanoTime();
+        LayoutFile roomsFile = LayoutGenerator.toLayoutFile(LayoutGenerator.coordinateName(floors),
+                LayoutGenerator.coordinateLayout(floors));
+        LayoutFile graphFile = LayoutGenerator.toLayoutFile(LayoutGenerator.graphName(floors),
+                LayoutGenerator.graphLayout(floors));
+        double compileMs = (System.nanoTime() - start) / 1e6;
+
+        // Heap is counted in whole regions, so small buildings are held several times over and averaged
+        int copies = Math.max(1, 50_000 / roomsFile.getRoomCount());
+
+        // Room-position engine: the snapshot with its index, then the routing kernel
+        BuildingLayout[] layouts = new BuildingLayout[copies];
+        long before = usedHeap();
+        start = System.nanoTime();
+        layouts[0] = BuildingLayout.fromLayoutFile(roomsFile);
+        double layoutMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        layouts[0].getRoutingKernel();
+        double kernelMs = (System.nanoTime() - start) / 1e6;
+        for (int i = 1; i < copies; i++) {
+            layouts[i] = BuildingLayout.fromLayoutFile(roomsFile);
+            layouts[i].getRoutingKernel();
+        }
+        long layoutBytes = (usedHeap() - before) / copies;
+        BuildingLayout layout = layouts[0];
+        layouts = null;
+
+        // Graph engine
+        BrooklynTechNavigator[] navigators = new BrooklynTechNavigator[copies];
+        before = usedHeap();
+        start = System.nanoTime();
+        navigators[0] = new BrooklynTechNavigator(graphFile);
+        double graphMs = (System.nanoTime() - start) / 1e6;
+        for (int i = 1; i < copies; i++) {
+            navigators[i] = new BrooklynTechNavigator(graphFile);
+        }
+        long graphBytes = (usedHeap() - before) / copies;
+        BrooklynTechNavigator navigator = navigators[0];
+        navigators = null;
+
+        BrooklynTechNavigation.publishLayout(layout);
+        List<String> rooms = new ArrayList<>(layout.getRoomCoordinates().keySet());
+        Collections.sort(rooms);
+        int queries = 200_000;
+        String[] from = new String[queries];
+        String[] to = new String[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = rooms.get(random.nextInt(rooms.size()));
+            to[q] = rooms.get(random.nextInt(rooms.size()));
+        }
+        double directionsUs = 0;
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            start = System.nanoTime();
+            for (int q = 0; q < queries; q++) {
+                sink += BrooklynTechNavigation.getDirections(from[q], to[q]).getSteps().size();
+            }
+            directionsUs = (System.nanoTime() - start) / 1e3 / queries;
+            checksum += sink;
+        }
+
+        CompactGraph graph = navigator.graph();
+        int n = graph.nodeCount();
+        int searches = (int) Math.max(200, Math.min(100_000, SEARCH_BUDGET / n));
+        int[] sources = new int[searches];
+        int[] targets = new int[searches];
+        for (int q = 0; q < searches; q++) {
+            sources[q] = random.nextInt(n);
+            targets[q] = random.nextInt(n);
+        }
+        double[] searchUs = new double[2];
+        CompactGraph.Algorithm[] algorithms = {CompactGraph.Algorithm.DIJKSTRA, CompactGraph.Algorithm.A_STAR};
+        for (int round = 0; round < 2; round++) {
+            for (int a = 0; a < algorithms.length; a++) {
+                long sink = 0;
+                start = System.nanoTime();
+                for (int q = 0; q < searches; q++) {
+                    sink += graph.distance(sources[q], targets[q], algorithms[a]);
+                }
+                searchUs[a] = (System.nanoTime() - start) / 1e3 / searches;
+                checksum += sink;
+            }
+        }
+
+        System.out.printf("%6d %8d %8d %9.1f %9.1f %8.1f %8.1f %9.1f %9.1f %10.2f %10.1f %10.1f%n",
+                floors, rooms.size(), n, compileMs, layoutMs, kernelMs, graphMs,
+                layoutBytes / 1e6, graphBytes / 1e6, directionsUs, searchUs[0], searchUs[1]);
+        return String.format(Locale.ROOT, "%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%d,%d,%.3f,%.2f,%.2f",
+                floors, rooms.size(), n, compileMs, layoutMs, kernelMs, graphMs,
+                layoutBytes, graphBytes, directionsUs, searchUs[0], searchUs[1]);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
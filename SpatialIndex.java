@@ -0,0 +1,314 @@
+import java.util.*;
+
+/**
+ * Nearest-room and within-reach searches by travel time, for kiosk questions
+ * like "nearest open stairwell", "nearest gym" or "closest C-wing room".
+ *
+ * Each category tagged in the layout file, and all rooms together, gets a
+ * uniform grid per floor over the RoutingKernel room IDs. A search walks
+ * floors and grid cells best-first by a lower bound on the time to reach
+ * them: straight walking on the start floor, and on another floor the walk to
+ * each open staircase serving both floors plus the stair time. Rooms are only
+ * timed exactly, the way calculateRoute times them, inside cells whose bound
+ * can still beat the answers found so far, so most of the building is never
+ * looked at.
+ */
+public final class SpatialIndex {
+
+    // Category name that searches every room
+    static final String ALL_ROOMS = "";
+
+    // Grid cells are sized to hold about this many rooms each
+    private static final int ROOMS_PER_CELL = 8;
+
+    private final BuildingLayout layout;
+    private final RoutingKernel kernel;
+
+    // Category -> grid per floor, null on floors without such rooms
+    private final Map<String, Grid[]> grids;
+
+    private SpatialIndex(BuildingLayout layout, RoutingKernel kernel, Map<String, Grid[]> grids) {
+        this.layout = layout;
+        this.kernel = kernel;
+        this.grids = grids;
+    }
+
+    static SpatialIndex build(BuildingLayout layout) {
+        RoutingKernel kernel = layout.getRoutingKernel();
+        Map<String, Grid[]> grids = new HashMap<>();
+
+        int[] all = new int[kernel.roomCount()];
+        for (int id = 0; id < all.length; id++) all[id] = id;
+        grids.put(ALL_ROOMS, gridsFor(kernel, all));
+
+        for (String category : layout.getCategories()) {
+            int[] ids = layout.getRoomsInCategory(category).stream().mapToInt(kernel::idOf).sorted().toArray();
+            grids.put(category, gridsFor(kernel, ids));
+        }
+        return new SpatialIndex(layout, kernel, grids);
+    }
+
+    private static Grid[] gridsFor(RoutingKernel kernel, int[] ids) {
+        Grid[] floors = new Grid[kernel.floorCount()];
+        int[] counts = new int[floors.length];
+        for (int id : ids) counts[kernel.floor(id)]++;
+        for (int f = 0; f < floors.length; f++) {
+            if (counts[f] == 0) continue;
+            int[] onFloor = new int[counts[f]];
+            int n = 0;
+            for (int id : ids) {
+                if (kernel.floor(id) == f) onFloor[n++] = id;
+            }
+            floors[f] = new Grid(kernel, onFloor);
+        }
+        return floors;
+    }
+
+    // One floor's rooms of a category, bucketed into square cells with the room IDs of each cell contiguous
+    private static final class Grid {
+        final int minX, minY, maxX, maxY;
+        final int cellSize;
+        final int columns;
+        final int rows;
+        final int[] cellStart;
+        final int[] cellRooms;
+
+        Grid(RoutingKernel kernel, int[] ids) {
+            int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE;
+            int hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+            for (int id : ids) {
+                loX = Math.min(loX, kernel.x(id));
+                loY = Math.min(loY, kernel.y(id));
+                hiX = Math.max(hiX, kernel.x(id));
+                hiY = Math.max(hiY, kernel.y(id));
+            }
+            minX = loX;
+            minY = loY;
+            maxX = hiX;
+            maxY = hiY;
+
+            double area = (double) (maxX - minX + 1) * (maxY - minY + 1);
+            cellSize = Math.max(1, (int) Math.ceil(Math.sqrt(area * ROOMS_PER_CELL / ids.length)));
+            columns = (maxX - minX) / cellSize + 1;
+            rows = (maxY - minY) / cellSize + 1;
+
+            cellStart = new int[columns * rows + 1];
+            for (int id : ids) cellStart[cellOf(kernel.x(id), kernel.y(id)) + 1]++;
+            for (int c = 0; c < columns * rows; c++) cellStart[c + 1] += cellStart[c];
+            cellRooms = new int[ids.length];
+            int[] next = Arrays.copyOf(cellStart, columns * rows);
+            for (int id : ids) cellRooms[next[cellOf(kernel.x(id), kernel.y(id))]++] = id;
+        }
+
+        int cellOf(int x, int y) {
+            return (y - minY) / cellSize * columns + (x - minX) / cellSize;
+        }
+
+        int cellCount() { return columns * rows; }
+    }
+
+    // A room or staircase found by a search, with the travel time to it
+    public static final class Match {
+        private final String room;
+        private final int floor;
+        private final double minutes;
+
+        Match(String room, int floor, double minutes) {
+            this.room = room;
+            this.floor = floor;
+            this.minutes = minutes;
+        }
+
+        // Room ID, or the staircase name for nearestStairs
+        public String getRoom() { return room; }
+
+        public int getFloor() { return floor; }
+
+        public double getMinutes() { return minutes; }
+
+        @Override
+        public String toString() {
+            return String.format("%s (floor %d, %.1f min)", room, floor, minutes);
+        }
+    }
+
+    // Nearest first, then by room ID so equal times list in a stable order
+    private static final Comparator<Match> NEAREST_FIRST =
+            Comparator.comparingDouble(Match::getMinutes).thenComparing(Match::getRoom);
+
+    /**
+     * The k rooms of a category that are quickest to reach from a room, on any
+     * floor, nearest first. The starting room itself, rooms in blocked wings
+     * and rooms with no open staircase to them are left out.
+     */
+    public static List<Match> nearest(String from, String category, int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        SpatialIndex index = layout.getSpatialIndex();
+        return index.search(index.resolve(from), index.gridsOf(category), k, Double.POSITIVE_INFINITY);
+    }
+
+    // Every room of a category reachable from a room within the given minutes, nearest first
+    public static List<Match> within(String from, String category, double minutes) {
+        if (!(minutes >= 0)) throw new IllegalArgumentException("minutes must not be negative");
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        SpatialIndex index = layout.getSpatialIndex();
+        return index.search(index.resolve(from), index.gridsOf(category), Integer.MAX_VALUE, minutes);
+    }
+
+    // The k open staircases with an entrance on the room's floor that are quickest to walk to
+    public static List<Match> nearestStairs(String from, int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+        SpatialIndex index = BrooklynTechNavigation.currentLayout().getSpatialIndex();
+        return index.stairsNear(index.resolve(from), k);
+    }
+
+    private int resolve(String input) {
+        String room = layout.getRoomIndex().resolve(input);
+        if (room == null) {
+            String message = "Room '" + input + "' not found.";
+            List<String> suggestions = layout.getRoomIndex().suggest(input);
+            if (!suggestions.isEmpty()) {
+                message += " Did you mean: " + String.join(", ", suggestions) + "?";
+            }
+            throw new IllegalArgumentException(message);
+        }
+        if (layout.isRoomClosed(room)) {
+            throw new IllegalArgumentException(layout.getRoomIndex().displayName(room) + " is currently closed.");
+        }
+        return kernel.idOf(room);
+    }
+
+    // Null or empty means every room
+    private Grid[] gridsOf(String category) {
+        if (category == null || category.isEmpty()) return grids.get(ALL_ROOMS);
+        Grid[] floors = grids.get(category.toLowerCase(Locale.ROOT));
+        if (floors == null) {
+            throw new IllegalArgumentException("Unknown category '" + category + "', expected one of "
+                    + String.join(", ", layout.getCategories()));
+        }
+        return floors;
+    }
+
+    // A floor (cell -1) or grid cell waiting to be searched, and the least time to reach anything in it
+    private static final class Pending {
+        final double bound;
+        final int floor;
+        final int cell;
+
+        Pending(double bound, int floor, int cell) {
+            this.bound = bound;
+            this.floor = floor;
+            this.cell = cell;
+        }
+    }
+
+    // Best-first search that stops once nothing left can beat the k-th match or fit within the radius
+    List<Match> search(int from, Grid[] floors, int k, double radius) {
+        int fromFloor = kernel.floor(from);
+        int fromX = kernel.x(from);
+        int fromY = kernel.y(from);
+
+        // Where each floor is entered from: the room itself, or the staircases the kernel could pick
+        double[][] portals = new double[floors.length][];
+        PriorityQueue<Pending> queue = new PriorityQueue<>(Comparator.comparingDouble((Pending p) -> p.bound));
+        for (int f = 0; f < floors.length; f++) {
+            Grid grid = floors[f];
+            if (grid == null) continue;
+            portals[f] = portals(fromFloor, fromX, fromY, f);
+            if (portals[f].length == 0) continue;
+            queue.add(new Pending(bound(portals[f], grid.minX, grid.minY, grid.maxX, grid.maxY), f, -1));
+        }
+
+        PriorityQueue<Match> best = new PriorityQueue<>(NEAREST_FIRST.reversed());
+        while (!queue.isEmpty()) {
+            Pending next = queue.poll();
+            double limit = best.size() == k ? best.peek().minutes : radius;
+            if (next.bound > limit) break;
+
+            Grid grid = floors[next.floor];
+            if (next.cell < 0) {
+                for (int c = 0; c < grid.cellCount(); c++) {
+                    if (grid.cellStart[c] == grid.cellStart[c + 1]) continue;
+                    int x0 = grid.minX + c % grid.columns * grid.cellSize;
+                    int y0 = grid.minY + c / grid.columns * grid.cellSize;
+                    double bound = bound(portals[next.floor], x0, y0, x0 + grid.cellSize - 1, y0 + grid.cellSize - 1);
+                    if (bound <= limit) queue.add(new Pending(bound, next.floor, c));
+                }
+                continue;
+            }
+
+            for (int i = grid.cellStart[next.cell]; i < grid.cellStart[next.cell + 1]; i++) {
+                int to = grid.cellRooms[i];
+                if (to == from) continue;
+                String room = kernel.room(to);
+                if (layout.isRoomClosed(room)) continue;
+                int stair = kernel.bestStair(from, to);
+                if (stair == RoutingKernel.NO_STAIRS) continue;
+                double minutes = kernel.travelTime(from, to, stair);
+                if (minutes > radius) continue;
+
+                Match match = new Match(room, next.floor, minutes);
+                if (best.size() < k) {
+                    best.add(match);
+                } else if (NEAREST_FIRST.compare(match, best.peek()) < 0) {
+                    best.poll();
+                    best.add(match);
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(NEAREST_FIRST);
+        return matches;
+    }
+
+    // Triples of x, y and minutes already spent on reaching that point of the target floor
+    private double[] portals(int fromFloor, int fromX, int fromY, int floor) {
+        if (floor == fromFloor) {
+            return new double[] {fromX, fromY, 0};
+        }
+        int[] open = kernel.openStairs(fromFloor);
+        double[] portals = new double[open.length * 3];
+        int n = 0;
+        for (int stair : open) {
+            if (!kernel.stairServes(stair, floor)) continue;
+            BrooklynTechNavigation.Coordinate at = BrooklynTechNavigation.ALL_STAIRS[stair];
+            portals[n++] = at.x;
+            portals[n++] = at.y;
+            portals[n++] = RoutingKernel.walkMinutes(distance(fromX, fromY, at.x, at.y)) + Math.abs(floor - fromFloor) * BrooklynTechNavigation.STAIR_TIME_PER_FLOOR;
+        }
+        return Arrays.copyOf(portals, n);
+    }
+
+    // Least time from any portal to a rectangle; never more than the kernel's time to a room inside it
+    private static double bound(double[] portals, int x0, int y0, int x1, int y1) {
+        double bound = Double.POSITIVE_INFINITY;
+        for (int p = 0; p < portals.length; p += 3) {
+            int px = (int) portals[p];
+            int py = (int) portals[p + 1];
+            int dx = px < x0 ? x0 - px : px > x1 ? px - x1 : 0;
+            int dy = py < y0 ? y0 - py : py > y1 ? py - y1 : 0;
+            bound = Math.min(bound, portals[p + 2] + RoutingKernel.walkMinutes(Math.sqrt(dx * dx + dy * dy)));
+        }
+        return bound;
+    }
+
+    List<Match> stairsNear(int from, int k) {
+        int floor = kernel.floor(from);
+        List<Match> matches = new ArrayList<>();
+        for (int stair : kernel.openStairs(floor)) {
+            BrooklynTechNavigation.Coordinate at = BrooklynTechNavigation.ALL_STAIRS[stair];
+            double minutes = RoutingKernel.walkMinutes(distance(kernel.x(from), kernel.y(from), at.x, at.y));
+            matches.add(new Match(BrooklynTechNavigation.STAIR_NAMES[stair], floor, minutes));
+        }
+        matches.sort(Comparator.comparingDouble(Match::getMinutes));
+        return matches.subList(0, Math.min(k, matches.size()));
+    }
+
+    private static double distance(int x1, int y1, int x2, int y2) {
+        int dx = x1 - x2;
+        int dy = y1 - y2;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+}
@@ -0,0 +1,160 @@
+import java.util.*;
+
+/**
+ * Checks the spatial index against a scan of every room and times both:
+ * k-nearest and within-radius searches from random rooms, by category and
+ * over all rooms, on the full building and with staircases closed and wings
+ * blocked. The scan is what a kiosk did before, calling getDirections for each
+ * candidate room.
+ *
+ * Usage: java SpatialIndexBenchmark [queries per case]
+ */
+public class SpatialIndexBenchmark {
+
+    public static void main(String[] args) {
+        int queries = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Random random = new Random(42);
+
+        System.out.println("=== Spatial index ===");
+        System.out.println("Categories: " + String.join(", ", BrooklynTechNavigation.currentLayout().getCategories()));
+
+        List<String> categories = new ArrayList<>(BrooklynTechNavigation.currentLayout().getCategories());
+        categories.add(null);
+        check("full building", categories, queries, random);
+
+        BrooklynTechNavigation.closeStaircase("NE");
+        BrooklynTechNavigation.closeStaircase("W12");
+        BrooklynTechNavigation.blockWing(4, 'E');
+        check("NE and W12 closed, 4E blocked", categories, queries, random);
+        BrooklynTechNavigation.reopenStaircase("NE");
+        BrooklynTechNavigation.reopenStaircase("W12");
+        BrooklynTechNavigation.reopenWing(4, 'E');
+
+        List<String> rooms = openRooms();
+        for (int round = 0; round < 3; round++) {
+            time(rooms, categories, queries, random, round == 2);
+        }
+
+        System.out.println();
+        System.out.println("Nearest gym to 4N5:     " + SpatialIndex.nearest("4N5", "gym", 1));
+        System.out.println("3 nearest C-wing rooms: " + SpatialIndex.nearest("6W3", "c-wing", 3));
+        System.out.println("Food within 4 minutes:  " + SpatialIndex.within("8S3", "food", 4));
+        System.out.println("Stairs nearest 2E12:    " + SpatialIndex.nearestStairs("2E12", 2));
+    }
+
+    private static void check(String name, List<String> categories, int queries, Random random) {
+        List<String> rooms = openRooms();
+        int mismatches = 0;
+        for (int q = 0; q < queries; q++) {
+            String from = rooms.get(random.nextInt(rooms.size()));
+            String category = categories.get(random.nextInt(categories.size()));
+            List<SpatialIndex.Match> expected = scan(from, category);
+
+            int k = 1 + random.nextInt(10);
+            if (!same(SpatialIndex.nearest(from, category, k), expected.subList(0, Math.min(k, expected.size())))) {
+                mismatches++;
+            }
+
+            double radius = random.nextDouble() * 4;
+            List<SpatialIndex.Match> inside = new ArrayList<>();
+            for (SpatialIndex.Match match : expected) {
+                if (match.getMinutes() <= radius) inside.add(match);
+            }
+            if (!same(SpatialIndex.within(from, category, radius), inside)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("%s: %d k-nearest and %d within-radius searches, %d mismatches%n",
+                name, queries, queries, mismatches);
+    }
+
+    private static void time(List<String> rooms, List<String> categories, int queries, Random random, boolean print) {
+        String[] from = new String[queries];
+        String[] category = new String[queries];
+        for (int q = 0; q < queries; q++) {
+            from[q] = rooms.get(random.nextInt(rooms.size()));
+            category[q] = categories.get(random.nextInt(categories.size()));
+        }
+
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            sink += SpatialIndex.nearest(from[q], category[q], 5).size();
+        }
+        long indexed = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            sink += SpatialIndex.nearest(from[q], null, 1).size();
+        }
+        long nearestRoom = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            sink += directionsScan(from[q], category[q], 5).size();
+        }
+        long scanned = System.nanoTime() - start;
+
+        if (print) {
+            System.out.println("Latency per search (warm JIT):");
+            System.out.printf("  %-36s %8.2f us%n", "index, 5 nearest of a category", indexed / 1e3 / queries);
+            System.out.printf("  %-36s %8.2f us%n", "index, nearest room of any kind", nearestRoom / 1e3 / queries);
+            System.out.printf("  %-36s %8.2f us%n", "getDirections to every candidate", scanned / 1e3 / queries);
+            System.out.println("  (" + sink + " results)");
+        }
+    }
+
+    // Exact travel time to every candidate room, nearest first
+    private static List<SpatialIndex.Match> scan(String from, String category) {
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int fromId = kernel.idOf(from);
+        List<SpatialIndex.Match> matches = new ArrayList<>();
+        for (String room : candidates(layout, category)) {
+            int to = kernel.idOf(room);
+            if (to == fromId || layout.isRoomClosed(room)) continue;
+            int stair = kernel.bestStair(fromId, to);
+            if (stair == RoutingKernel.NO_STAIRS) continue;
+            matches.add(new SpatialIndex.Match(room, kernel.floor(to), kernel.travelTime(fromId, to, stair)));
+        }
+        matches.sort(Comparator.comparingDouble(SpatialIndex.Match::getMinutes).thenComparing(SpatialIndex.Match::getRoom));
+        return matches;
+    }
+
+    private static List<String> directionsScan(String from, String category, int k) {
+        List<BrooklynTechNavigation.NavigationResult> routes = new ArrayList<>();
+        for (String room : candidates(BrooklynTechNavigation.currentLayout(), category)) {
+            BrooklynTechNavigation.NavigationResult result = BrooklynTechNavigation.getDirections(from, room);
+            if (result.getFrom() != null) routes.add(result);
+        }
+        routes.sort(Comparator.comparingDouble(BrooklynTechNavigation.NavigationResult::getEstimatedTime));
+        List<String> nearest = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, routes.size()); i++) nearest.add(routes.get(i).getTo());
+        return nearest;
+    }
+
+    private static Set<String> candidates(BuildingLayout layout, String category) {
+        return category == null ? layout.getRoomCoordinates().keySet() : layout.getRoomsInCategory(category);
+    }
+
+    private static boolean same(List<SpatialIndex.Match> actual, List<SpatialIndex.Match> expected) {
+        if (actual.size() != expected.size()) return false;
+        for (int i = 0; i < actual.size(); i++) {
+            if (!actual.get(i).getRoom().equals(expected.get(i).getRoom())
+                    || actual.get(i).getMinutes() != expected.get(i).getMinutes()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> openRooms() {
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        List<String> rooms = new ArrayList<>();
+        for (String room : layout.getRoomCoordinates().keySet()) {
+            if (!layout.isRoomClosed(room)) rooms.add(room);
+        }
+        Collections.sort(rooms);
+        return rooms;
+    }
+}
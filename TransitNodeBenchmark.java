@@ -0,0 +1,104 @@
+/**
+ * Compares the transit-node router against the findBestStaircase scan on every
+ * cross-floor room pair: checks both pick the same time, then reports the
+ * per-query latency of each and the size of the transit tables.
+ *
+ * Usage: java TransitNodeBenchmark [rounds]
+ */
+public class TransitNodeBenchmark {
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+        long buildStart = System.nanoTime();
+        BuildingLayout layout = BrooklynTechNavigation.currentLayout();
+        TransitNodeRouter router = TransitNodeRouter.build(layout);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        int n = router.roomCount();
+        String[] rooms = new String[n];
+        BrooklynTechNavigation.Coordinate[] coords = new BrooklynTechNavigation.Coordinate[n];
+        int[] floors = new int[n];
+        for (int i = 0; i < n; i++) {
+            rooms[i] = router.room(i);
+            coords[i] = layout.coordinateOf(rooms[i]);
+            floors[i] = BrooklynTechNavigation.getFloorFromRoom(rooms[i]);
+        }
+
+        // Correctness: the transit router must agree with the scan on every pair
+        int mismatches = 0;
+        int queries = 0;
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                if (floors[from] == floors[to]) continue;
+                queries++;
+                double expected = scanTime(layout, rooms, coords, floors, from, to);
+                if (Double.compare(expected, router.travelTime(from, to)) != 0) {
+                    mismatches++;
+                }
+            }
+        }
+
+        // Warm up both paths before timing
+        double sink = 0;
+        for (int round = 0; round < 5; round++) {
+            sink += runScan(layout, rooms, coords, floors);
+            sink += runTransit(router, floors);
+        }
+
+        long scanNanos = 0;
+        long transitNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            sink += runScan(layout, rooms, coords, floors);
+            scanNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += runTransit(router, floors);
+            transitNanos += System.nanoTime() - start;
+        }
+
+        long totalQueries = (long) queries * rounds;
+        System.out.println("=== Transit-node routing vs findBestStaircase scan ===");
+        System.out.printf("Rooms: %d, cross-floor pairs: %d, rounds: %d%n", n, queries, rounds);
+        System.out.printf("Mismatched travel times: %d%n", mismatches);
+        System.out.printf("findBestStaircase scan: %8.1f ns/query%n", (double) scanNanos / totalQueries);
+        System.out.printf("Transit-node lookup:    %8.1f ns/query%n", (double) transitNanos / totalQueries);
+        System.out.printf("Transit tables: ~%.1f KB, built in %.1f ms%n",
+                router.estimatedBytes() / 1024.0, buildNanos / 1_000_000.0);
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static double scanTime(BuildingLayout layout, String[] rooms, BrooklynTechNavigation.Coordinate[] coords,
+                                   int[] floors, int from, int to) {
+        BrooklynTechNavigation.Coordinate stair =
+                BrooklynTechNavigation.findBestStaircase(layout, coords[from], coords[to], floors[from], floors[to]);
+        return BrooklynTechNavigation.routeTime(layout, rooms[from], rooms[to], stair);
+    }
+
+    private static double runScan(BuildingLayout layout, String[] rooms, BrooklynTechNavigation.Coordinate[] coords,
+                                  int[] floors) {
+        double total = 0;
+        for (int from = 0; from < rooms.length; from++) {
+            for (int to = 0; to < rooms.length; to++) {
+                if (floors[from] != floors[to]) {
+                    total += scanTime(layout, rooms, coords, floors, from, to);
+                }
+            }
+        }
+        return total;
+    }
+
+    private static double runTransit(TransitNodeRouter router, int[] floors) {
+        double total = 0;
+        int n = router.roomCount();
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                if (floors[from] != floors[to]) {
+                    total += router.travelTime(from, to);
+                }
+            }
+        }
+        return total;
+    }
+}
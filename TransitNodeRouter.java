@@ -0,0 +1,123 @@
+import java.util.*;
+
+/**
+ * Transit-node router for {@link BrooklynTechNavigation}.
+ *
+ * Every cross-floor route leaves its floor through a staircase, so the
+ * staircases act as transit nodes. The router precomputes the distance from
+ * each room to each staircase, and for every pair of floors the open
+ * staircases with an entrance on both. A cross-floor query is then a minimum
+ * over at most 6 staircases, with no check of which floors each one serves.
+ *
+ * Switching staircases part way never helps: by the triangle inequality a
+ * walk from one staircase to another is never shorter than walking from the
+ * room to the second staircase directly, so each route uses one staircase.
+ *
+ * The floor pair table takes one byte per pair, so buildings are limited to
+ * MAX_FLOORS floors (1 MB).
+ */
+final class TransitNodeRouter {
+
+    static final int MAX_FLOORS = 1024;
+
+    private static final BrooklynTechNavigation.Coordinate[] STAIRS = BrooklynTechNavigation.ALL_STAIRS;
+    private static final int STAIR_COUNT = STAIRS.length;
+
+    private final RoutingKernel kernel;
+    private final int floorCount;
+
+    // Distance in room units from each room to each staircase, indexed [room * STAIR_COUNT + stair]
+    private final double[] roomToStair;
+
+    // Bit s set when staircase s is open on both floors, indexed [fromFloor * floorCount + toFloor]
+    private final byte[] commonStairs;
+
+    private TransitNodeRouter(RoutingKernel kernel, int floorCount, double[] roomToStair, byte[] commonStairs) {
+        this.kernel = kernel;
+        this.floorCount = floorCount;
+        this.roomToStair = roomToStair;
+        this.commonStairs = commonStairs;
+    }
+
+    // Refuses buildings whose floor pair table would be too large
+    static void checkSize(BuildingLayout layout) {
+        int floors = layout.getFloorCount();
+        if (floors > MAX_FLOORS) {
+            throw new IllegalStateException("Transit-node routing supports at most " + MAX_FLOORS
+                    + " floors; this layout has " + floors);
+        }
+    }
+
+    static TransitNodeRouter build(BuildingLayout layout) {
+        checkSize(layout);
+        RoutingKernel kernel = layout.getRoutingKernel();
+        int n = kernel.roomCount();
+        int floorCount = kernel.floorCount();
+
+        double[] roomToStair = new double[n * STAIR_COUNT];
+        for (int room = 0; room < n; room++) {
+            BrooklynTechNavigation.Coordinate coord = layout.coordinateOf(kernel.room(room));
+            for (int stair = 0; stair < STAIR_COUNT; stair++) {
+                roomToStair[room * STAIR_COUNT + stair] = coord.distanceTo(STAIRS[stair]);
+            }
+        }
+
+        int[] floorStairs = new int[floorCount];
+        for (int floor = 0; floor < floorCount; floor++) {
+            for (int stair : kernel.openStairs(floor)) {
+                floorStairs[floor] |= 1 << stair;
+            }
+        }
+        byte[] commonStairs = new byte[floorCount * floorCount];
+        for (int fromFloor = 0; fromFloor < floorCount; fromFloor++) {
+            for (int toFloor = 0; toFloor < floorCount; toFloor++) {
+                commonStairs[fromFloor * floorCount + toFloor] = (byte) (floorStairs[fromFloor] & floorStairs[toFloor]);
+            }
+        }
+
+        return new TransitNodeRouter(kernel, floorCount, roomToStair, commonStairs);
+    }
+
+    int roomCount() { return kernel.roomCount(); }
+
+    String room(int id) { return kernel.room(id); }
+
+    /**
+     * Staircase index into ALL_STAIRS with the shortest walk, by RoutingKernel
+     * room ID, with the same SAME_FLOOR and NO_STAIRS results and the same ties
+     * as RoutingKernel.bestStair.
+     */
+    int bestStair(int from, int to) {
+        int fromFloor = kernel.floor(from);
+        int toFloor = kernel.floor(to);
+        if (fromFloor == toFloor) {
+            return RoutingKernel.SAME_FLOOR;
+        }
+
+        int common = commonStairs[fromFloor * floorCount + toFloor];
+        int fromBase = from * STAIR_COUNT;
+        int toBase = to * STAIR_COUNT;
+        double best = Double.POSITIVE_INFINITY;
+        int bestStair = RoutingKernel.NO_STAIRS;
+        for (int stair = 0; stair < STAIR_COUNT; stair++) {
+            if ((common & (1 << stair)) == 0) continue;
+            double distance = roomToStair[fromBase + stair] + roomToStair[toBase + stair];
+            if (distance < best) {
+                best = distance;
+                bestStair = stair;
+            }
+        }
+        return bestStair;
+    }
+
+    // Walking time in minutes, infinite when no open staircase connects the floors
+    double travelTime(int from, int to) {
+        int stair = bestStair(from, to);
+        return stair == RoutingKernel.NO_STAIRS ? Double.POSITIVE_INFINITY : kernel.travelTime(from, to, stair);
+    }
+
+    /** Approximate heap footprint of the precomputed tables in bytes. */
+    long estimatedBytes() {
+        return 16L + 8L * roomToStair.length + 16L + commonStairs.length;
+    }
+}
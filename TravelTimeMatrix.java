@@ -0,0 +1,60 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Memoized travel times in minutes between the rooms of one {@link BuildingLayout}
+ * snapshot, timed the way calculateRoute times a route.
+ *
+ * Rows are indexed by RoutingKernel room ID and computed one origin at a time
+ * on first use, then shared by every caller of the snapshot. A pair with no
+ * open staircase between its floors is infinitely far apart.
+ */
+final class TravelTimeMatrix {
+
+    private final RoutingKernel kernel;
+    private final AtomicReferenceArray<double[]> rows;
+
+    TravelTimeMatrix(RoutingKernel kernel) {
+        this.kernel = kernel;
+        this.rows = new AtomicReferenceArray<>(kernel.roomCount());
+    }
+
+    double minutes(int from, int to) {
+        return row(from)[to];
+    }
+
+    // Times from one room to every room; a racing computation produces an identical row
+    double[] row(int from) {
+        double[] row = rows.get(from);
+        if (row == null) {
+            row = new double[kernel.roomCount()];
+            for (int to = 0; to < row.length; to++) {
+                if (to == from) continue;
+                int stair = kernel.bestStair(from, to);
+                row[to] = stair == RoutingKernel.NO_STAIRS
+                        ? Double.POSITIVE_INFINITY : kernel.travelTime(from, to, stair);
+            }
+            rows.set(from, row);
+        }
+        return row;
+    }
+
+    // Square matrix of the times between the given rooms, in their order
+    double[][] between(int[] rooms) {
+        double[][] times = new double[rooms.length][rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            double[] row = row(rooms[i]);
+            for (int j = 0; j < rooms.length; j++) {
+                times[i][j] = row[rooms[j]];
+            }
+        }
+        return times;
+    }
+
+    int rowsComputed() {
+        int count = 0;
+        for (int i = 0; i < rows.length(); i++) {
+            if (rows.get(i) != null) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The staircase scan on its own, with the room coordinates resolved up front.
+ * Floor 7 routes only consider the four corner staircases.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FindBestStaircaseBenchmark {
+
+    @Param({"2W3>6S7", "1N1>8E24", "3C4>7Cafeteria"})
+    public String pair;
+
+    private Object layout;
+    private Object fromCoord;
+    private Object toCoord;
+    private int fromFloor;
+    private int toFloor;
+
+    @Setup
+    public void setUp() {
+        String[] rooms = pair.split(">");
+        layout = NavigationEngines.currentLayout();
+        fromCoord = NavigationEngines.coordinateOf(layout, rooms[0]);
+        toCoord = NavigationEngines.coordinateOf(layout, rooms[1]);
+        fromFloor = NavigationEngines.floorOf(rooms[0]);
+        toFloor = NavigationEngines.floorOf(rooms[1]);
+        if (fromCoord == null || toCoord == null) {
+            throw new IllegalArgumentException("Unknown room in " + pair);
+        }
+    }
+
+    @Benchmark
+    public Object findBestStaircase() {
+        return NavigationEngines.findBestStaircase(layout, fromCoord, toCoord, fromFloor, toFloor);
+    }
+}
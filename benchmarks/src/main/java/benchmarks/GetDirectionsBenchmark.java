@@ -0,0 +1,60 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * BrooklynTechNavigation.getDirections end to end, from raw input to a result.
+ * The route alone is timed separately from rendering the text directions,
+ * since results render lazily.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GetDirectionsBenchmark {
+
+    @Param({"SAME_FLOOR", "CROSS_FLOOR", "FLOOR_7", "SPECIAL_AREA"})
+    public String route;
+
+    private String from;
+    private String to;
+
+    @Setup
+    public void setUp() {
+        switch (route) {
+            case "SAME_FLOOR":
+                from = "4N5";
+                to = "4E12";
+                break;
+            case "CROSS_FLOOR":
+                from = "2W3";
+                to = "6S7";
+                break;
+            case "FLOOR_7":
+                // Middle staircases have no floor 7 entrance, so only the corners are considered
+                from = "3C4";
+                to = "Cafeteria";
+                break;
+            case "SPECIAL_AREA":
+                from = "Library";
+                to = "8E20";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown route " + route);
+        }
+    }
+
+    @Benchmark
+    public double route() {
+        return NavigationEngines.estimatedTime(NavigationEngines.getDirections(from, to));
+    }
+
+    @Benchmark
+    public String routeAndRender() {
+        return NavigationEngines.renderDirections(NavigationEngines.getDirections(from, to));
+    }
+}
@@ -0,0 +1,218 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Calls into the navigation engines from the benchmark package.
+ *
+ * The engines live in the default package, which a named package cannot
+ * import, and JMH refuses benchmarks in the default package. Each entry point
+ * is bound once to a static final MethodHandle with Object in place of the
+ * engine types, so the JIT inlines the call like a direct one.
+ */
+final class NavigationEngines {
+
+    private static final MethodHandle GET_DIRECTIONS;
+    private static final MethodHandle RENDER_DIRECTIONS;
+    private static final MethodHandle ESTIMATED_TIME;
+    private static final MethodHandle CURRENT_LAYOUT;
+    private static final MethodHandle NORMALIZE_ROOM_INPUT;
+    private static final MethodHandle COORDINATE_OF;
+    private static final MethodHandle FLOOR_OF;
+    private static final MethodHandle FIND_BEST_STAIRCASE;
+    private static final MethodHandle CALCULATE_ROUTE;
+    private static final MethodHandle ROUTING_KERNEL;
+    private static final MethodHandle KERNEL_ID_OF;
+    private static final MethodHandle KERNEL_BEST_STAIR;
+    private static final MethodHandle KERNEL_TRAVEL_TIME;
+    private static final MethodHandle NEW_NAVIGATOR;
+    private static final MethodHandle SHORTEST_PATH;
+
+    static {
+        try {
+            ClassLoader loader = NavigationEngines.class.getClassLoader();
+            Class<?> navigation = Class.forName("BrooklynTechNavigation", true, loader);
+            Class<?> result = Class.forName("BrooklynTechNavigation$NavigationResult", true, loader);
+            Class<?> coordinate = Class.forName("BrooklynTechNavigation$Coordinate", true, loader);
+            Class<?> layout = Class.forName("BuildingLayout", true, loader);
+            Class<?> navigator = Class.forName("BrooklynTechNavigator", true, loader);
+            Class<?> kernel = Class.forName("RoutingKernel", true, loader);
+
+            // Both sides are in the unnamed module, so private and package-private members are reachable
+            MethodHandles.Lookup engine = MethodHandles.privateLookupIn(navigation, MethodHandles.lookup());
+            MethodHandles.Lookup layoutLookup = MethodHandles.privateLookupIn(layout, MethodHandles.lookup());
+            MethodHandles.Lookup graphLookup = MethodHandles.privateLookupIn(navigator, MethodHandles.lookup());
+            MethodHandles.Lookup kernelLookup = MethodHandles.privateLookupIn(kernel, MethodHandles.lookup());
+
+            GET_DIRECTIONS = erase(engine.findStatic(navigation, "getDirections",
+                    MethodType.methodType(result, String.class, String.class)));
+            RENDER_DIRECTIONS = erase(engine.findVirtual(result, "getDirections", MethodType.methodType(String.class)));
+            ESTIMATED_TIME = erase(engine.findVirtual(result, "getEstimatedTime", MethodType.methodType(double.class)));
+            CURRENT_LAYOUT = erase(engine.findStatic(navigation, "currentLayout", MethodType.methodType(layout)));
+            NORMALIZE_ROOM_INPUT = erase(engine.findStatic(navigation, "normalizeRoomInput",
+                    MethodType.methodType(String.class, layout, String.class)));
+            COORDINATE_OF = erase(layoutLookup.findVirtual(layout, "coordinateOf",
+                    MethodType.methodType(coordinate, String.class)));
+            FLOOR_OF = erase(engine.findStatic(navigation, "getFloorFromRoom", MethodType.methodType(int.class, String.class)));
+            FIND_BEST_STAIRCASE = erase(engine.findStatic(navigation, "findBestStaircase",
+                    MethodType.methodType(coordinate, layout, coordinate, coordinate, int.class, int.class)));
+            CALCULATE_ROUTE = erase(engine.findStatic(navigation, "calculateRoute",
+                    MethodType.methodType(result, layout, String.class, String.class)));
+            ROUTING_KERNEL = erase(layoutLookup.findVirtual(layout, "getRoutingKernel", MethodType.methodType(kernel)));
+            KERNEL_ID_OF = erase(kernelLookup.findVirtual(kernel, "idOf", MethodType.methodType(int.class, String.class)));
+            KERNEL_BEST_STAIR = erase(kernelLookup.findVirtual(kernel, "bestStair",
+                    MethodType.methodType(int.class, int.class, int.class)));
+            KERNEL_TRAVEL_TIME = erase(kernelLookup.findVirtual(kernel, "travelTime",
+                    MethodType.methodType(double.class, int.class, int.class, int.class)));
+            NEW_NAVIGATOR = erase(graphLookup.findConstructor(navigator, MethodType.methodType(void.class)));
+            SHORTEST_PATH = erase(graphLookup.findVirtual(navigator, "shortestPath",
+                    MethodType.methodType(List.class, String.class, String.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private NavigationEngines() {}
+
+    // Replaces every engine type in the signature with Object so callers can use invokeExact
+    private static MethodHandle erase(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            type = type.changeParameterType(i, visible(type.parameterType(i)));
+        }
+        return handle.asType(type.changeReturnType(visible(type.returnType())));
+    }
+
+    private static Class<?> visible(Class<?> type) {
+        return type.isPrimitive() || type.getName().startsWith("java.") ? type : Object.class;
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+
+    static Object getDirections(String from, String to) {
+        try {
+            return (Object) GET_DIRECTIONS.invokeExact(from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String renderDirections(Object result) {
+        try {
+            return (String) RENDER_DIRECTIONS.invokeExact(result);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static double estimatedTime(Object result) {
+        try {
+            return (double) ESTIMATED_TIME.invokeExact(result);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object currentLayout() {
+        try {
+            return (Object) CURRENT_LAYOUT.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static String normalizeRoomInput(Object layout, String input) {
+        try {
+            return (String) NORMALIZE_ROOM_INPUT.invokeExact(layout, input);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object coordinateOf(Object layout, String room) {
+        try {
+            return (Object) COORDINATE_OF.invokeExact(layout, room);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int floorOf(String room) {
+        try {
+            return (int) FLOOR_OF.invokeExact(room);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object findBestStaircase(Object layout, Object from, Object to, int fromFloor, int toFloor) {
+        try {
+            return (Object) FIND_BEST_STAIRCASE.invokeExact(layout, from, to, fromFloor, toFloor);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object calculateRoute(Object layout, String from, String to) {
+        try {
+            return (Object) CALCULATE_ROUTE.invokeExact(layout, from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object routingKernel(Object layout) {
+        try {
+            return (Object) ROUTING_KERNEL.invokeExact(layout);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int kernelIdOf(Object kernel, String room) {
+        try {
+            return (int) KERNEL_ID_OF.invokeExact(kernel, room);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int kernelBestStair(Object kernel, int from, int to) {
+        try {
+            return (int) KERNEL_BEST_STAIR.invokeExact(kernel, from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static double kernelTravelTime(Object kernel, int from, int to, int stair) {
+        try {
+            return (double) KERNEL_TRAVEL_TIME.invokeExact(kernel, from, to, stair);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newNavigator() {
+        try {
+            return (Object) NEW_NAVIGATOR.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> shortestPath(Object navigator, String from, String to) {
+        try {
+            return (List<?>) SHORTEST_PATH.invokeExact(navigator, from, to);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Resolving typed input to a room ID. Hits cover room numbers in any case and
+ * special area names; misses are input that reaches the end of the lookup
+ * without resolving, before any suggestions are made.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NormalizeRoomInputBenchmark {
+
+    @Param({"4N5", "  2e12 ", "library", "9Z99", "libary"})
+    public String input;
+
+    private Object layout;
+
+    @Setup
+    public void setUp() {
+        layout = NavigationEngines.currentLayout();
+    }
+
+    @Benchmark
+    public String normalize() {
+        return NavigationEngines.normalizeRoomInput(layout, input);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The int-ID routing kernel against the string facade around it. The kernel
+ * benchmark should report 0 B/op; calculateRoute adds the cost of interning
+ * the room IDs and building the (unrendered) NavigationResult.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoutingKernelBenchmark {
+
+    @Param({"4N5>4E12", "2W3>6S7", "3C4>7Cafeteria"})
+    public String pair;
+
+    private Object layout;
+    private Object kernel;
+    private String from;
+    private String to;
+    private int fromId;
+    private int toId;
+
+    @Setup
+    public void setUp() {
+        String[] rooms = pair.split(">");
+        from = rooms[0];
+        to = rooms[1];
+        layout = NavigationEngines.currentLayout();
+        kernel = NavigationEngines.routingKernel(layout);
+        fromId = NavigationEngines.kernelIdOf(kernel, from);
+        toId = NavigationEngines.kernelIdOf(kernel, to);
+        if (fromId < 0 || toId < 0) {
+            throw new IllegalArgumentException("Unknown room in " + pair);
+        }
+    }
+
+    @Benchmark
+    public double kernel() {
+        int stair = NavigationEngines.kernelBestStair(kernel, fromId, toId);
+        return NavigationEngines.kernelTravelTime(kernel, fromId, toId, stair);
+    }
+
+    @Benchmark
+    public Object calculateRoute() {
+        return NavigationEngines.calculateRoute(layout, from, to);
+    }
+}
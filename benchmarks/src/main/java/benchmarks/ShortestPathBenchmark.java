@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Dijkstra over the BrooklynTechNavigator room graph, including building the
+ * returned node list.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortestPathBenchmark {
+
+    @Param({"N1F4>E20F4", "W3F2>S7F6", "N1F0>C8F8", "W1F5>LibraryF5"})
+    public String pair;
+
+    private Object navigator;
+    private String from;
+    private String to;
+
+    @Setup
+    public void setUp() {
+        navigator = NavigationEngines.newNavigator();
+        String[] nodes = pair.split(">");
+        from = nodes[0];
+        to = nodes[1];
+        if (NavigationEngines.shortestPath(navigator, from, to) == null) {
+            throw new IllegalArgumentException("No path for " + pair);
+        }
+    }
+
+    @Benchmark
+    public List<?> shortestPath() {
+        return NavigationEngines.shortestPath(navigator, from, to);
+    }
+}
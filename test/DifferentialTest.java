@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Every routing engine of both models against its reference on every ordered
+ * pair, on the full building and with DifferentialHarness's closures, and the
+ * count of mapped pairs only one model can route. Latency is compared by the
+ * opt-in differential task instead.
+ */
+class DifferentialTest {
+
+    @Test
+    void enginesMatchOnTheFullBuilding() {
+        check(false);
+    }
+
+    @Test
+    void enginesMatchWithClosures() {
+        check(true);
+    }
+
+    private static void check(boolean closures) {
+        DifferentialHarness.Model[] models = DifferentialHarness.models(closures);
+        DifferentialHarness.check(models, Runtime.getRuntime().availableProcessors());
+
+        for (DifferentialHarness.Model model : models) {
+            assertTrue(model.pairs.sum() > 0, model.name + " model checked no pairs");
+            for (DifferentialHarness.Engine engine : model.engines.subList(1, model.engines.size())) {
+                assertEquals(0, engine.mismatches.sum(), engine.name + " against " + model.engines.get(0).name
+                        + ", e.g. " + engine.examples);
+            }
+        }
+        assertEquals(DifferentialHarness.expectedCrossModel(closures),
+                DifferentialHarness.crossModelReport(models[0], models[1]), "mapped pairs routable in one model only");
+    }
+}
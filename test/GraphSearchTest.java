@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A* and bidirectional search against plain Dijkstra on every ordered pair of
+ * corridor graph nodes: same travel time, a real path with that time, and an
+ * A* bound never above the real time. Settled nodes and latency are reported
+ * by GraphSearchBenchmark.
+ */
+class GraphSearchTest {
+
+    @Test
+    void matchesDijkstraOnEveryPair() {
+        checkAllPairs(new BrooklynTechNavigator().graph());
+    }
+
+    // Closed and slowed segments leave the searches on a reweighted copy of the graph
+    @Test
+    void matchesDijkstraOnEveryPairAfterClosures() {
+        BrooklynTechNavigator navigator = new BrooklynTechNavigator();
+        navigator.closeNode("NEStairF3");
+        navigator.closeNode("W12StairF5");
+        navigator.setEdgeTime("NWStairF2", "N1F2", 60);
+        checkAllPairs(navigator.currentGraph());
+    }
+
+    private static void checkAllPairs(CompactGraph graph) {
+        int n = graph.nodeCount();
+        for (int source = 0; source < n; source++) {
+            for (int target = 0; target < n; target++) {
+                int[] expected = graph.shortestPath(source, target, CompactGraph.Algorithm.DIJKSTRA);
+                int time = graph.distance(source, target, CompactGraph.Algorithm.DIJKSTRA);
+                String pair = graph.id(source) + " -> " + graph.id(target);
+                if (time != CompactGraph.UNREACHABLE) {
+                    assertTrue(graph.lowerBound(source, target) <= time, "A* bound above the real time: " + pair);
+                }
+
+                for (CompactGraph.Algorithm algorithm : CompactGraph.SEARCHES) {
+                    if (algorithm == CompactGraph.Algorithm.DIJKSTRA) continue;
+                    int[] path = graph.shortestPath(source, target, algorithm);
+                    assertEquals(time, graph.distance(source, target, algorithm), algorithm + " time: " + pair);
+                    assertEquals(expected == null, path == null, algorithm + " reachability: " + pair);
+                    if (path != null) {
+                        assertEquals(time, pathTime(graph, path, source, target), algorithm + " path: " + pair);
+                    }
+                }
+            }
+        }
+    }
+
+    // Sum of edge weights along the path, or -1 if it does not join source to target along open edges
+    private static int pathTime(CompactGraph graph, int[] path, int source, int target) {
+        if (path[0] != source || path[path.length - 1] != target) return -1;
+        int total = 0;
+        for (int i = 1; i < path.length; i++) {
+            int weight = graph.weightBetween(path[i - 1], path[i]);
+            if (weight < 0 || weight == CompactGraph.UNREACHABLE) return -1;
+            total += weight;
+        }
+        return total;
+    }
+}